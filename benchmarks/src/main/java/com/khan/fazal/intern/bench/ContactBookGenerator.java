@@ -0,0 +1,90 @@
+package com.khan.fazal.intern.bench;
+
+import com.khan.fazal.intern.model.Contact;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates deterministic synthetic contact books for the benchmarks.
+ *
+ * Names are drawn from small first/last name pools so that prefixes and
+ * surnames repeat the way they do in real books; a letter suffix keeps
+ * every name unique. Phones are valid 10-digit numbers and emails share
+ * a handful of domains.
+ */
+public final class ContactBookGenerator {
+    private static final String[] FIRST = {
+            "Asta", "Bulma", "Conan", "Deku", "Eren", "Frieren", "Goku", "Himmel", "Ichigo", "Jotaro",
+            "Kakashi", "Levi", "Mikasa", "Naruto", "Orihime", "Ran", "Sakura", "Tanjiro", "Usopp", "Violet",
+            "Yuji", "Zenitsu", "Anya", "Bakugo", "Chopper", "Denji", "Edward", "Fern", "Gon", "Hinata"};
+    private static final String[] LAST = {
+            "Yeager", "Edogawa", "Midoriya", "Uzumaki", "Kurosaki", "Kujo", "Hatake", "Ackerman", "Inoue",
+            "Mouri", "Haruno", "Kamado", "Evergarden", "Itadori", "Agatsuma", "Forger", "Katsuki", "Elric",
+            "Freecss", "Hyuga", "Zoldyck", "Gojo", "Fushiguro", "Kugisaki", "Okkotsu", "Uchiha", "Nara",
+            "Akimichi", "Inuzuka", "Aburame"};
+    private static final String[] DOMAINS = {
+            "blackbulls.magic", "capsule.corp", "detective.jp", "ua.hero", "paradis.isl", "mail.com"};
+
+    private ContactBookGenerator() {
+    }
+
+    /**
+     * Generates {@code count} unique contacts.
+     *
+     * @param count number of contacts
+     * @param seed  random seed, so runs are reproducible
+     * @return the generated contacts
+     */
+    public static List<Contact> generate(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Contact> contacts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String first = FIRST[random.nextInt(FIRST.length)];
+            String last = LAST[random.nextInt(LAST.length)];
+            String tag = suffix(i);
+            String name = first + " " + last + " " + tag;
+            String phone = Long.toString(9_000_000_000L + random.nextLong(1_000_000_000L));
+            String email = first.toLowerCase() + "." + tag + "@" + DOMAINS[random.nextInt(DOMAINS.length)];
+            contacts.add(new Contact(name, phone, email));
+        }
+        return contacts;
+    }
+
+    /**
+     * Writes {@code count} generated contacts to a new CSV file in {@code dir}.
+     *
+     * @param count number of contacts
+     * @param dir   directory for the file
+     * @return path of the written file
+     * @throws IOException if the file cannot be written
+     */
+    public static Path writeCsv(int count, Path dir) throws IOException {
+        Path file = Files.createTempFile(dir, "contacts-" + count + "-", ".csv");
+        try (BufferedWriter bw = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Contact c : generate(count, 42)) {
+                bw.write(c.toString());
+                bw.newLine();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Encodes {@code n} as a lower-case letter string ("a", "b", ..., "aa", ...).
+     */
+    static String suffix(int n) {
+        StringBuilder sb = new StringBuilder();
+        do {
+            sb.append((char) ('a' + n % 26));
+            n = n / 26 - 1;
+        } while (n >= 0);
+        return sb.reverse().toString();
+    }
+}
@@ -0,0 +1,47 @@
+package com.khan.fazal.intern.bench;
+
+import com.khan.fazal.intern.dao.ContactRepository;
+import com.khan.fazal.intern.dao.PersistenceMode;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reports the retained heap of a {@link ContactRepository} holding a
+ * synthetic book, with plain contacts and with compact storage, and the
+ * time each takes to load.
+ *
+ * Run with a generous heap, e.g.
+ * {@code java -Xmx8g -cp target/benchmarks.jar com.khan.fazal.intern.bench.ContactFootprint 1000000}.
+ */
+public class ContactFootprint {
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path dir = Files.createTempDirectory("contact-footprint");
+        Path csv = ContactBookGenerator.writeCsv(count, dir);
+        try {
+            System.out.printf("contacts: %,d%n", count);
+            measure("plain", csv, false);
+            measure("compact", csv, true);
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static void measure(String label, Path csv, boolean compact) {
+        long base = IndexFootprint.usedHeap();
+        long started = System.nanoTime();
+        ContactRepository repository = new ContactRepository(csv.toString(), PersistenceMode.REWRITE, false, compact);
+        long loadMs = (System.nanoTime() - started) / 1_000_000;
+        long used = IndexFootprint.usedHeap() - base;
+
+        System.out.printf("%-8s %,d bytes (%.1f bytes/contact), loaded in %d ms%n",
+                label + ":", used, (double) used / repository.size(), loadMs);
+        Reference.reachabilityFence(repository);
+        repository.close();
+    }
+}
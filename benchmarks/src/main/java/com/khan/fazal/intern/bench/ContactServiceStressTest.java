@@ -0,0 +1,156 @@
+package com.khan.fazal.intern.bench;
+
+import com.khan.fazal.intern.dao.ContactRepository;
+import com.khan.fazal.intern.dao.PersistenceMode;
+import com.khan.fazal.intern.model.Contact;
+import com.khan.fazal.intern.service.ContactService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multi-threaded consistency check for {@link ContactService} under mixed
+ * read/write load.
+ *
+ * Writer threads add and delete contacts of their own while reader threads
+ * search and list concurrently. Every search result must actually match its
+ * query and contain no duplicates, and every listing must be free of
+ * duplicates. Once the writers stop, the indexes must agree exactly with
+ * the set of contacts the writers believe to be live.
+ *
+ * Usage: {@code ContactServiceStressTest [seconds] [readers] [writers] [bookSize]}.
+ * Exits with status 1 if any inconsistency is found.
+ */
+public class ContactServiceStressTest {
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int writers = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int bookSize = args.length > 3 ? Integer.parseInt(args[3]) : 50_000;
+
+        Path dir = Files.createTempDirectory("stress");
+        Path book = ContactBookGenerator.writeCsv(bookSize, dir);
+        ContactService service = new ContactService(new ContactRepository(book.toString(), PersistenceMode.JOURNAL));
+
+        ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+        AtomicLong reads = new AtomicLong();
+        AtomicLong writes = new AtomicLong();
+        Set<String> live = ConcurrentHashMap.newKeySet();
+        service.getContacts().forEach(c -> live.add(c.getName()));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService pool = Executors.newFixedThreadPool(readers + writers);
+        List<Future<?>> tasks = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            tasks.add(pool.submit(() -> {
+                SplittableRandom random = new SplittableRandom(writer);
+                List<String> mine = new ArrayList<>();
+                int next = 0;
+                while (System.nanoTime() < deadline) {
+                    if (mine.isEmpty() || random.nextInt(3) > 0) {
+                        String tag = ContactBookGenerator.suffix(next);
+                        String name = ContactService.toTitleCase("Stress W" + writer + " " + tag);
+                        String phone = String.format("8%d%08d", writer, next++);
+                        if (service.addContact(name, phone, "w" + writer + "." + tag + "@stress.test")) {
+                            mine.add(name);
+                            live.add(name);
+                        } else {
+                            failures.add("add rejected: " + name);
+                        }
+                    } else {
+                        String name = mine.remove(random.nextInt(mine.size()));
+                        live.remove(name);
+                        if (!service.deleteContact(name)) {
+                            failures.add("delete missed: " + name);
+                        }
+                    }
+                    writes.incrementAndGet();
+                }
+            }));
+        }
+
+        String[] queries = {"stress", "stress w1", "a", "co", "90", "81", "@stress", "w2.", "conan", "8"};
+        for (int r = 0; r < readers; r++) {
+            int reader = r;
+            tasks.add(pool.submit(() -> {
+                int i = reader;
+                while (System.nanoTime() < deadline) {
+                    String query = queries[i++ % queries.length];
+                    checkResults(query, service.searchContacts(query), failures);
+                    if (i % 50 == 0) {
+                        checkUnique("listing", service.getContacts(), failures);
+                    }
+                    reads.incrementAndGet();
+                }
+            }));
+        }
+
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        pool.shutdown();
+
+        List<Contact> all = service.getContacts();
+        Set<String> listed = new HashSet<>();
+        all.forEach(c -> listed.add(c.getName()));
+        if (!listed.equals(live)) {
+            failures.add("final listing has " + listed.size() + " contacts, expected " + live.size());
+        }
+        for (Contact c : all) {
+            if (!service.searchContacts(c.getName()).contains(c)) {
+                failures.add("index lost " + c.getName());
+            }
+        }
+        checkResults("stress", service.searchContacts("stress"), failures);
+
+        System.out.printf("reads: %,d  writes: %,d  live contacts: %,d%n", reads.get(), writes.get(), all.size());
+        service.close();
+        cleanUp(dir);
+        if (!failures.isEmpty()) {
+            failures.stream().limit(20).forEach(f -> System.out.println("FAIL " + f));
+            System.out.println(failures.size() + " inconsistencies found.");
+            System.exit(1);
+        }
+        System.out.println("No inconsistencies found.");
+        System.exit(0);
+    }
+
+    /**
+     * Verifies that every result matches the query and appears only once.
+     */
+    private static void checkResults(String query, List<Contact> results, Queue<String> failures) {
+        String q = query.toLowerCase();
+        for (Contact c : results) {
+            if (c == null) {
+                failures.add("null result for '" + query + "'");
+                return;
+            }
+            if (!ContactService.matches(c, q)) {
+                failures.add("'" + query + "' returned non-matching " + c);
+            }
+        }
+        checkUnique("search '" + query + "'", results, failures);
+    }
+
+    private static void checkUnique(String what, List<Contact> contacts, Queue<String> failures) {
+        Set<Contact> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Contact c : contacts) {
+            if (!seen.add(c)) {
+                failures.add(what + " returned " + c + " twice");
+            }
+        }
+    }
+
+    private static void cleanUp(Path dir) throws IOException {
+        try (var files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
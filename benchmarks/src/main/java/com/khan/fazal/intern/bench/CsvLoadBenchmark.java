@@ -0,0 +1,83 @@
+package com.khan.fazal.intern.bench;
+
+import com.khan.fazal.intern.dao.ContactRepository;
+import com.khan.fazal.intern.dao.CsvContactLoader;
+import com.khan.fazal.intern.dao.PersistenceMode;
+import com.khan.fazal.intern.model.Contact;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cold-start cost of loading a contact book: the original
+ * {@code BufferedReader} + {@code String.split} loop against the
+ * memory-mapped {@link CsvContactLoader}, sequential and parallel, plus
+ * the full {@link ContactRepository} load, which also builds the key maps
+ * and the name-ordered list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CsvLoadBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void writeBook() throws IOException {
+        file = ContactBookGenerator.writeCsv(rows, Files.createTempDirectory("bench"));
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteBook() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<Contact> readerSplit() throws IOException {
+        List<Contact> contacts = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(file.toFile()))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] data = line.split(",");
+                if (data.length == 3) {
+                    contacts.add(new Contact(data[0], data[1], data[2]));
+                }
+            }
+        }
+        return contacts;
+    }
+
+    @Benchmark
+    public List<Contact> mappedSequential() throws IOException {
+        List<Contact> contacts = new ArrayList<>();
+        CsvContactLoader.load(file, contacts, false);
+        return contacts;
+    }
+
+    @Benchmark
+    public List<Contact> mappedParallel() throws IOException {
+        List<Contact> contacts = new ArrayList<>();
+        CsvContactLoader.load(file, contacts, true);
+        return contacts;
+    }
+
+    @Benchmark
+    public int repository() {
+        ContactRepository repository = new ContactRepository(file.toString(), PersistenceMode.REWRITE);
+        repository.close();
+        return repository.size();
+    }
+}
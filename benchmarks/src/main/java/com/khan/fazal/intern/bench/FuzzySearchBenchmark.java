@@ -0,0 +1,76 @@
+package com.khan.fazal.intern.bench;
+
+import com.khan.fazal.intern.dao.ContactRepository;
+import com.khan.fazal.intern.dao.PersistenceMode;
+import com.khan.fazal.intern.model.Contact;
+import com.khan.fazal.intern.service.ContactService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ContactService#searchFuzzy} latency for name prefixes of a given
+ * length with one typo, a replaced letter at a random position. Short
+ * prefixes allow one edit and match a large share of the book; longer
+ * ones allow two edits but narrow down quickly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FuzzySearchBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    @Param({"5", "10", "20"})
+    public int length;
+
+    private Path dir;
+    private ContactRepository repository;
+    private ContactService service;
+    private String[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        dir = Files.createTempDirectory("bench");
+        Path file = ContactBookGenerator.writeCsv(rows, dir);
+        repository = new ContactRepository(file.toString(), PersistenceMode.REWRITE);
+        service = new ContactService(repository);
+
+        List<Contact> contacts = repository.getAllContacts();
+        SplittableRandom random = new SplittableRandom(13);
+        queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) {
+            String name = contacts.get(random.nextInt(contacts.size())).getName();
+            char[] prefix = name.substring(0, Math.min(length, name.length())).toCharArray();
+            prefix[random.nextInt(prefix.length)] = (char) ('a' + random.nextInt(26));
+            queries[i] = new String(prefix);
+        }
+        service.searchFuzzy(queries[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        repository.close();
+        try (var files = Files.list(dir)) {
+            for (Path p : files.toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public List<Contact> fuzzy() {
+        return service.searchFuzzy(queries[next++ & (queries.length - 1)]);
+    }
+}
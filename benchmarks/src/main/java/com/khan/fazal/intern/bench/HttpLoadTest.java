@@ -0,0 +1,146 @@
+package com.khan.fazal.intern.bench;
+
+import com.khan.fazal.intern.controller.ContactHttpServer;
+import com.khan.fazal.intern.dao.ContactRepository;
+import com.khan.fazal.intern.dao.PersistenceMode;
+import com.khan.fazal.intern.model.Contact;
+import com.khan.fazal.intern.service.ContactService;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load test for {@link ContactHttpServer}.
+ *
+ * Each client is a virtual thread that sends one request at a time and
+ * records its latency: mostly searches by name prefix or phone fragment,
+ * plus lookups of single contacts by name. At the end the harness reports
+ * throughput and latency percentiles over all requests.
+ *
+ * Without a URL an in-process server is started on a synthetic book; with
+ * one, an already running server is tested (it should hold a book written
+ * by {@link ContactBookGenerator} for the queries to match).
+ *
+ * Usage: {@code HttpLoadTest [seconds] [clients] [bookSize] [baseUrl]}.
+ * Exits with status 1 if any request failed.
+ */
+public class HttpLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int bookSize = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        List<Contact> book = ContactBookGenerator.generate(bookSize, 42);
+        ContactService service = null;
+        ContactHttpServer server = null;
+        String baseUrl;
+        if (args.length > 3) {
+            baseUrl = args[3];
+        } else {
+            Path dir = Files.createTempDirectory("http-load");
+            Path file = ContactBookGenerator.writeCsv(bookSize, dir);
+            service = new ContactService(new ContactRepository(file.toString(), PersistenceMode.JOURNAL));
+            server = new ContactHttpServer(service, 0);
+            server.start();
+            baseUrl = "http://localhost:" + server.getPort();
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        // Warm up the server (and its indexes) before measuring
+        for (int i = 0; i < 200; i++) {
+            send(client, baseUrl + requestPath(book, new SplittableRandom(i)));
+        }
+
+        AtomicLong failures = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<long[]>> results = new ArrayList<>();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                SplittableRandom random = new SplittableRandom(1000 + c);
+                results.add(pool.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int n = 0;
+                    while (System.nanoTime() < deadline) {
+                        String url = baseUrl + requestPath(book, random);
+                        long start = System.nanoTime();
+                        int status = send(client, url);
+                        long took = System.nanoTime() - start;
+                        if (status != 200) failures.incrementAndGet();
+                        if (n == latencies.length) latencies = Arrays.copyOf(latencies, n * 2);
+                        latencies[n++] = took;
+                    }
+                    return Arrays.copyOf(latencies, n);
+                }));
+            }
+        }
+
+        long[] all = results.stream().map(HttpLoadTest::join).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("clients: %d  requests: %,d  failed: %,d%n", clients, all.length, failures.get());
+        System.out.printf("throughput: %,.0f req/s%n", all.length / (double) seconds);
+        System.out.printf("latency ms  p50: %.2f  p90: %.2f  p99: %.2f  p99.9: %.2f  max: %.2f%n",
+                percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99),
+                percentile(all, 0.999), all.length == 0 ? 0 : all[all.length - 1] / 1e6);
+
+        if (server != null) {
+            server.stop();
+            service.close();
+        }
+        System.exit(failures.get() == 0 ? 0 : 1);
+    }
+
+    /**
+     * Picks the next request: 45% name-prefix search, 45% phone-fragment
+     * search, 10% lookup by exact name.
+     */
+    private static String requestPath(List<Contact> book, SplittableRandom random) {
+        Contact c = book.get(random.nextInt(book.size()));
+        int kind = random.nextInt(20);
+        if (kind < 9) {
+            String name = c.getName();
+            return "/contacts?q=" + encode(name.substring(0, Math.min(name.length(), 6 + random.nextInt(8))));
+        } else if (kind < 18) {
+            return "/contacts?q=" + c.getPhone().substring(2, 7);
+        }
+        return "/contacts/" + encode(c.getName());
+    }
+
+    private static int send(HttpClient client, String url) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url)).GET().build();
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static long[] join(Future<long[]> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e6;
+    }
+}
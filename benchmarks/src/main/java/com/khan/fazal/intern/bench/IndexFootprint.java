@@ -0,0 +1,59 @@
+package com.khan.fazal.intern.bench;
+
+import com.khan.fazal.intern.model.Contact;
+import com.khan.fazal.intern.utils.Trie;
+
+import java.lang.ref.Reference;
+import java.util.List;
+
+/**
+ * Reports the retained heap of the radix {@link Trie} and the original
+ * {@link LegacyTrie} over the same synthetic names. The contacts themselves
+ * are built first and kept alive so only the index is measured.
+ *
+ * Run with a generous heap, e.g.
+ * {@code java -Xmx8g -cp target/benchmarks.jar com.khan.fazal.intern.bench.IndexFootprint 1000000}.
+ */
+public class IndexFootprint {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        List<Contact> contacts = ContactBookGenerator.generate(count, 42);
+
+        long base = usedHeap();
+        Trie trie = new Trie();
+        for (int i = 0; i < contacts.size(); i++) {
+            trie.insert(contacts.get(i).getName(), i);
+        }
+        long radix = usedHeap() - base;
+
+        base = usedHeap();
+        LegacyTrie legacy = new LegacyTrie();
+        for (Contact c : contacts) {
+            legacy.insert(c.getName());
+        }
+        long old = usedHeap() - base;
+
+        System.out.printf("names:       %,d%n", count);
+        System.out.printf("radix trie:  %,d bytes (%.1f bytes/name)%n", radix, (double) radix / count);
+        System.out.printf("legacy trie: %,d bytes (%.1f bytes/name)%n", old, (double) old / count);
+        Reference.reachabilityFence(trie);
+        Reference.reachabilityFence(legacy);
+    }
+
+    /**
+     * Returns the heap in use after repeated full collections.
+     */
+    static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
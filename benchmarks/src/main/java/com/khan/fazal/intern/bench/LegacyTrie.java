@@ -0,0 +1,54 @@
+package com.khan.fazal.intern.bench;
+
+import java.util.*;
+
+/**
+ * The original {@code HashMap}-per-node Trie that copies every name into
+ * the list of each node along its path. Kept here only as a baseline for
+ * the index benchmarks.
+ */
+public class LegacyTrie {
+
+    private static class TrieNode {
+        Map<Character, TrieNode> children = new HashMap<>();
+        List<String> contactNames = new ArrayList<>();
+    }
+
+    private final TrieNode root = new TrieNode();
+
+    public void insert(String name) {
+        TrieNode current = root;
+        for (char ch : name.toLowerCase().toCharArray()) {
+            current = current.children.computeIfAbsent(ch, c -> new TrieNode());
+            current.contactNames.add(name);
+        }
+    }
+
+    public void delete(String name) {
+        delete(root, name.toLowerCase(), 0);
+    }
+
+    private boolean delete(TrieNode node, String name, int index) {
+        if (index == name.length()) return true;
+
+        char ch = name.charAt(index);
+        TrieNode child = node.children.get(ch);
+        if (child == null) return false;
+
+        child.contactNames.remove(name);
+
+        if (delete(child, name, index + 1) && child.contactNames.isEmpty()) {
+            node.children.remove(ch);
+        }
+        return node.children.isEmpty();
+    }
+
+    public List<String> searchByPrefix(String prefix) {
+        TrieNode current = root;
+        for (char ch : prefix.toLowerCase().toCharArray()) {
+            current = current.children.get(ch);
+            if (current == null) return Collections.emptyList();
+        }
+        return current.contactNames;
+    }
+}
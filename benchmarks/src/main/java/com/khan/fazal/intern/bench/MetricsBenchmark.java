@@ -0,0 +1,74 @@
+package com.khan.fazal.intern.bench;
+
+import com.khan.fazal.intern.model.Contact;
+import com.khan.fazal.intern.utils.LatencyHistogram;
+import com.khan.fazal.intern.utils.Metrics;
+import com.khan.fazal.intern.utils.Trie;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the {@link Metrics} instrumentation: recording into a
+ * {@link LatencyHistogram} from one and from four threads, a full timer
+ * start and stop, and a narrow {@link Trie} prefix lookup, which is timed
+ * on every call, with metrics on and switched off by
+ * {@code -Dcontacts.metrics=false}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsBenchmark {
+    private static final Metrics.Timer TIMER = Metrics.timer("bench.timer");
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private Trie trie;
+    private String[] prefixes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void build() {
+        List<Contact> contacts = ContactBookGenerator.generate(100_000, 42);
+        trie = new Trie();
+        for (int i = 0; i < contacts.size(); i++) {
+            trie.insert(contacts.get(i).getName(), i);
+        }
+        SplittableRandom random = new SplittableRandom(7);
+        prefixes = new String[1024];
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixes[i] = contacts.get(random.nextInt(contacts.size())).getName().toLowerCase();
+        }
+    }
+
+    @Benchmark
+    public void record() {
+        histogram.record(next++ & 0xFFFF);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        histogram.record(System.nanoTime() & 0xFFFF);
+    }
+
+    @Benchmark
+    public void timer() {
+        TIMER.stop(Metrics.start());
+    }
+
+    @Benchmark
+    public int[] prefixLookup() {
+        return trie.searchByPrefix(prefixes[next++ & 1023]);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dcontacts.metrics=false")
+    public int[] prefixLookupMetricsOff() {
+        return trie.searchByPrefix(prefixes[next++ & 1023]);
+    }
+}
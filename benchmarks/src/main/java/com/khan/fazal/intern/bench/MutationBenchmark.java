@@ -0,0 +1,67 @@
+package com.khan.fazal.intern.bench;
+
+import com.khan.fazal.intern.dao.ContactRepository;
+import com.khan.fazal.intern.dao.PersistenceMode;
+import com.khan.fazal.intern.service.ContactService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link ContactService#addContact} followed by
+ * {@link ContactService#deleteContact}, including persistence, for each
+ * {@link PersistenceMode}. In rewrite mode both calls rewrite the whole
+ * CSV file; in journal mode they append a record each, with periodic
+ * group fsyncs and compactions amortized over the run; in write-behind
+ * mode they only count a pending change for the background writer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MutationBenchmark {
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    @Param({"REWRITE", "JOURNAL", "WRITE_BEHIND"})
+    public PersistenceMode mode;
+
+    private Path dir;
+    private ContactRepository repository;
+    private ContactService service;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        dir = Files.createTempDirectory("bench");
+        Path file = ContactBookGenerator.writeCsv(rows, dir);
+        repository = new ContactRepository(file.toString(), mode);
+        service = new ContactService(repository);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        repository.close();
+        try (var files = Files.list(dir)) {
+            for (Path p : files.toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public boolean addThenDelete() {
+        int n = next++;
+        String name = "Bench Contact " + ContactBookGenerator.suffix(n);
+        String phone = String.format("8%09d", n);
+        service.addContact(name, phone, "bench." + n + "@bench.test");
+        return service.deleteContact(name);
+    }
+}
@@ -0,0 +1,93 @@
+package com.khan.fazal.intern.bench;
+
+import com.khan.fazal.intern.dao.ContactRepository;
+import com.khan.fazal.intern.dao.PersistenceMode;
+import com.khan.fazal.intern.model.Contact;
+import com.khan.fazal.intern.service.ContactService;
+import com.khan.fazal.intern.service.SearchOrder;
+import com.khan.fazal.intern.service.SearchPage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The first page of 50 results from {@link ContactService#searchPage}
+ * against the full result list of {@link ContactService#searchContacts},
+ * for a one-letter query matching most of the book, a name prefix and a
+ * narrow two-word query. The full search is made to miss the result cache
+ * by a write of a matching contact before each call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PagedSearchBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    @Param({"a", "con", "con edo"})
+    public String query;
+
+    private Path dir;
+    private ContactRepository repository;
+    private ContactService service;
+
+    /**
+     * Adds or deletes a contact matching every query before each full
+     * search, which drops the query from the result cache.
+     */
+    @State(Scope.Thread)
+    public static class Invalidation {
+        private boolean added;
+
+        @Setup(Level.Invocation)
+        public void toggle(PagedSearchBenchmark bench) {
+            String name = "Con Edo A Bench";
+            added = added
+                    ? !bench.service.deleteContact(name)
+                    : bench.service.addContact(name, "6000000000", "a.bench@bench.test");
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        dir = Files.createTempDirectory("bench");
+        Path file = ContactBookGenerator.writeCsv(rows, dir);
+        repository = new ContactRepository(file.toString(), PersistenceMode.REWRITE);
+        service = new ContactService(repository);
+        service.searchPage(query, SearchOrder.RELEVANCE, 50, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        repository.close();
+        try (var files = Files.list(dir)) {
+            for (Path p : files.toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public SearchPage pageByName() {
+        return service.searchPage(query, SearchOrder.NAME, 50, null);
+    }
+
+    @Benchmark
+    public SearchPage pageByRelevance() {
+        return service.searchPage(query, SearchOrder.RELEVANCE, 50, null);
+    }
+
+    @Benchmark
+    public List<Contact> fullSearch(Invalidation invalidation) {
+        return service.searchContacts(query);
+    }
+}
@@ -0,0 +1,102 @@
+package com.khan.fazal.intern.bench;
+
+import com.khan.fazal.intern.model.Contact;
+import com.khan.fazal.intern.utils.PrintDash;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Rendering cost of the CLI contact listing. {@code System.out} is
+ * redirected to a discarding stream during the trial, so this measures
+ * formatting and stream overhead, not the terminal.
+ *
+ * {@code legacy} is the original {@code printf}-per-cell renderer over a
+ * copied {@code List<String[]>}; {@code printTable} is the same entry
+ * point on the buffered renderer; {@code streaming} renders the contacts
+ * directly through column extractors, as {@code ContactView} does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrintTableBenchmark {
+    private static final String[] HEADER = {"Name", "Phone", "Email"};
+    private static final List<Function<Contact, String>> COLUMNS =
+            List.of(Contact::getName, Contact::getPhone, Contact::getEmail);
+
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    private List<Contact> contacts;
+    private List<String[]> table;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void build() {
+        contacts = ContactBookGenerator.generate(rows, 42);
+        table = new ArrayList<>(rows + 1);
+        table.add(HEADER);
+        for (Contact c : contacts) {
+            table.add(new String[]{c.getName(), c.getPhone(), c.getEmail()});
+        }
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void restore() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public void legacy() {
+        int[] widths = new int[HEADER.length];
+        for (String[] row : table) {
+            for (int i = 0; i < widths.length; i++) {
+                widths[i] = Math.max(widths[i], row[i].trim().length());
+            }
+        }
+        legacySeparator(widths);
+        for (int r = 0; r < table.size(); r++) {
+            String[] row = table.get(r);
+            System.out.print("|");
+            for (int i = 0; i < widths.length; i++) {
+                System.out.printf(" %-" + widths[i] + "s |", row[i].trim());
+            }
+            System.out.println();
+            if (r == 0) legacySeparator(widths);
+        }
+        legacySeparator(widths);
+    }
+
+    private static void legacySeparator(int[] widths) {
+        System.out.print("+");
+        for (int width : widths) {
+            System.out.print("-".repeat(width + 2) + "+");
+        }
+        System.out.println();
+    }
+
+    @Benchmark
+    public void printTable() {
+        PrintDash.printTable(table);
+    }
+
+    @Benchmark
+    public void streaming() throws IOException {
+        Writer out = PrintDash.stdout();
+        int[] widths = PrintDash.measure(HEADER, contacts, COLUMNS);
+        PrintDash.printTable(HEADER, contacts.iterator(), COLUMNS, widths, out);
+        out.flush();
+    }
+}
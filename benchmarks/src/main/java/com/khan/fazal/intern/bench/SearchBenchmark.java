@@ -0,0 +1,93 @@
+package com.khan.fazal.intern.bench;
+
+import com.khan.fazal.intern.dao.ContactRepository;
+import com.khan.fazal.intern.dao.PersistenceMode;
+import com.khan.fazal.intern.model.Contact;
+import com.khan.fazal.intern.service.ContactService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link ContactService#searchContacts} latency for queries
+ * that hit the name, word, phone or email index.
+ *
+ * {@code cold} cycles through 4096 distinct queries, more than the
+ * service's result cache holds, so every call goes to the indexes.
+ * {@code hot} cycles through 16 queries, which are answered from the
+ * cache after the first round.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    @Param({"name", "words", "phone", "email"})
+    public String field;
+
+    private Path dir;
+    private ContactRepository repository;
+    private ContactService service;
+    private String[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        dir = Files.createTempDirectory("bench");
+        Path file = ContactBookGenerator.writeCsv(rows, dir);
+        repository = new ContactRepository(file.toString(), PersistenceMode.REWRITE);
+        service = new ContactService(repository);
+
+        List<Contact> contacts = repository.getAllContacts();
+        SplittableRandom random = new SplittableRandom(11);
+        queries = new String[4096];
+        for (int i = 0; i < queries.length; i++) {
+            Contact c = contacts.get(random.nextInt(contacts.size()));
+            queries[i] = switch (field) {
+                // drop the last suffix letter: matches a handful of names
+                case "name" -> c.getName().substring(0, c.getName().length() - 1);
+                // the start of the first and last name, e.g. "con edo"
+                case "words" -> {
+                    String[] words = c.getName().split(" ");
+                    yield words[0].substring(0, 3) + " " + words[1].substring(0, 3);
+                }
+                // five digits from the middle of the number
+                case "phone" -> c.getPhone().substring(3, 8);
+                // the local part, e.g. "conan.abc"
+                default -> c.getEmail().substring(0, c.getEmail().indexOf('@'));
+            };
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        repository.close();
+        try (var files = Files.list(dir)) {
+            for (Path p : files.toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public List<Contact> cold() {
+        return service.searchContacts(queries[next++ & (queries.length - 1)]);
+    }
+
+    @Benchmark
+    public List<Contact> hot() {
+        return service.searchContacts(queries[next++ & 15]);
+    }
+}
@@ -0,0 +1,114 @@
+package com.khan.fazal.intern.bench;
+
+import com.khan.fazal.intern.dao.ContactRepository;
+import com.khan.fazal.intern.dao.ContactStore;
+import com.khan.fazal.intern.dao.PersistenceMode;
+import com.khan.fazal.intern.dao.ShardedContactRepository;
+import com.khan.fazal.intern.model.Contact;
+import com.khan.fazal.intern.service.ContactService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single {@link ContactRepository} against a
+ * {@link ShardedContactRepository} over the same book, in rewrite mode:
+ * loading the book, a full scan, a batch import and a single add + delete.
+ * Loads, scans and batches fan out over the shards, so their gain depends
+ * on the number of cores; a single mutation only rewrites its own shard's
+ * file. Every batch import grows the book by a thousand contacts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"1", "4"})
+    public int shards;
+
+    private Path dir;
+    private String file;
+    private ContactStore store;
+    private ContactService service;
+    private int next;
+
+    /**
+     * A fresh batch of a thousand new contacts for each import.
+     */
+    @State(Scope.Thread)
+    public static class Batch {
+        private static int next;
+        List<Contact> contacts;
+
+        @Setup(Level.Invocation)
+        public void prepare() {
+            contacts = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                int n = next++;
+                contacts.add(new Contact("Batch Contact " + ContactBookGenerator.suffix(n),
+                        String.format("7%09d", n), "batch." + n + "@bench.test"));
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("bench");
+        file = ContactBookGenerator.writeCsv(rows, dir).toString();
+        store = open();
+        service = new ContactService(store);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        try (var files = Files.list(dir)) {
+            for (Path p : files.toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    private ContactStore open() {
+        return shards == 1
+                ? new ContactRepository(file, PersistenceMode.REWRITE)
+                : new ShardedContactRepository(file, shards, PersistenceMode.REWRITE);
+    }
+
+    @Benchmark
+    public int load() {
+        try (ContactStore loaded = open()) {
+            return loaded.size();
+        }
+    }
+
+    @Benchmark
+    public int scan() {
+        return service.scanContacts("99").size();
+    }
+
+    @Benchmark
+    public boolean[] importBatch(Batch batch) {
+        return store.addContacts(batch.contacts);
+    }
+
+    @Benchmark
+    public boolean addThenDelete() {
+        int n = next++;
+        String name = "Bench Contact " + ContactBookGenerator.suffix(n);
+        service.addContact(name, String.format("8%09d", n), "bench." + n + "@bench.test");
+        return service.deleteContact(name);
+    }
+}
@@ -0,0 +1,85 @@
+package com.khan.fazal.intern.bench;
+
+import com.khan.fazal.intern.model.Contact;
+import com.khan.fazal.intern.utils.Trie;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prefix lookup latency of the radix {@link Trie} against the original
+ * {@link LegacyTrie}, over the same synthetic names. Prefixes are 1 to 4
+ * characters cut from random existing names, so every lookup hits.
+ *
+ * {@code radixInsertDelete} measures index maintenance: it inserts a name
+ * that is not in the Trie yet and deletes it again, which exercises edge
+ * splitting on insert and pruning and re-merging on delete.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TrieBenchmark {
+
+    @Param({"1000000"})
+    public int names;
+
+    @Param({"2", "4"})
+    public int prefixLength;
+
+    private Trie trie;
+    private LegacyTrie legacy;
+    private String[] prefixes;
+    private String[] extraNames;
+    private int next;
+    private int nextExtra;
+
+    @Setup(Level.Trial)
+    public void build() {
+        List<Contact> contacts = ContactBookGenerator.generate(names, 42);
+        trie = new Trie();
+        legacy = new LegacyTrie();
+        for (int i = 0; i < contacts.size(); i++) {
+            trie.insert(contacts.get(i).getName(), i);
+            legacy.insert(contacts.get(i).getName());
+        }
+
+        SplittableRandom random = new SplittableRandom(7);
+        prefixes = new String[1024];
+        for (int i = 0; i < prefixes.length; i++) {
+            String name = contacts.get(random.nextInt(contacts.size())).getName();
+            prefixes[i] = name.substring(0, Math.min(prefixLength, name.length())).toLowerCase();
+        }
+
+        extraNames = new String[1024];
+        for (int i = 0; i < extraNames.length; i++) {
+            String name = contacts.get(random.nextInt(contacts.size())).getName();
+            extraNames[i] = name + " extra " + ContactBookGenerator.suffix(i);
+        }
+    }
+
+    private String nextPrefix() {
+        return prefixes[next++ & (prefixes.length - 1)];
+    }
+
+    @Benchmark
+    public int[] radixSearch() {
+        return trie.searchByPrefix(nextPrefix());
+    }
+
+    @Benchmark
+    public List<String> legacySearch() {
+        return legacy.searchByPrefix(nextPrefix());
+    }
+
+    @Benchmark
+    public boolean radixInsertDelete() {
+        int slot = nextExtra++ & (extraNames.length - 1);
+        trie.insert(extraNames[slot], names + slot);
+        return trie.delete(extraNames[slot], names + slot);
+    }
+}
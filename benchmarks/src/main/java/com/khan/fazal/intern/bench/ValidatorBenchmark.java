@@ -0,0 +1,65 @@
+package com.khan.fazal.intern.bench;
+
+import com.khan.fazal.intern.model.Contact;
+import com.khan.fazal.intern.utils.InputValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phone and email validation: the scanners in {@link InputValidator}
+ * against the original {@code String.matches} calls, which compile a
+ * pattern on every invocation. Run with {@code -prof gc} to see the
+ * allocation rate; the scanners should report zero bytes per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidatorBenchmark {
+    private List<Contact> contacts;
+    private String[] phones;
+    private String[] emails;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void build() {
+        contacts = ContactBookGenerator.generate(10_000, 42);
+        phones = new String[1024];
+        emails = new String[1024];
+        for (int i = 0; i < phones.length; i++) {
+            phones[i] = contacts.get(i).getPhone();
+            emails[i] = contacts.get(i).getEmail();
+        }
+    }
+
+    @Benchmark
+    public boolean scannerPhone() {
+        return InputValidator.isValidPhone(phones[next++ & 1023]);
+    }
+
+    @Benchmark
+    public boolean scannerEmail() {
+        return InputValidator.isValidEmail(emails[next++ & 1023]);
+    }
+
+    @Benchmark
+    public boolean regexPhone() {
+        return phones[next++ & 1023].matches("\\d{10}");
+    }
+
+    @Benchmark
+    public boolean regexEmail() {
+        return emails[next++ & 1023].matches("^[\\w.-]+@[\\w.-]+\\.\\w+$");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(10_000)
+    public BitSet validateAll() {
+        return InputValidator.validateAll(contacts);
+    }
+}
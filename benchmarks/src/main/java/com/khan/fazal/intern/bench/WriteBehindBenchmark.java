@@ -0,0 +1,71 @@
+package com.khan.fazal.intern.bench;
+
+import com.khan.fazal.intern.dao.ContactRepository;
+import com.khan.fazal.intern.dao.FlushPolicy;
+import com.khan.fazal.intern.dao.PersistenceMode;
+import com.khan.fazal.intern.service.ContactService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ContactService#addContact} followed by
+ * {@link ContactService#deleteContact} from four threads at once, with
+ * every change rewriting the CSV file ({@code rewrite}) against
+ * {@link PersistenceMode#WRITE_BEHIND} under a given {@link FlushPolicy}.
+ * With {@code sync} each change still waits until it is on disk, but the
+ * changes of all threads made during one rewrite share the next.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class WriteBehindBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"rewrite", "sync", "every:100", "500ms"})
+    public String flush;
+
+    private final AtomicInteger next = new AtomicInteger();
+    private Path dir;
+    private ContactRepository repository;
+    private ContactService service;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        dir = Files.createTempDirectory("bench");
+        String file = ContactBookGenerator.writeCsv(rows, dir).toString();
+        repository = flush.equals("rewrite")
+                ? new ContactRepository(file, PersistenceMode.REWRITE)
+                : new ContactRepository(file, FlushPolicy.parse(flush));
+        service = new ContactService(repository);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        repository.close();
+        try (var files = Files.list(dir)) {
+            for (Path p : files.toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public boolean addThenDelete() {
+        int n = next.getAndIncrement();
+        String name = "Bench Contact " + ContactBookGenerator.suffix(n);
+        service.addContact(name, String.format("8%09d", n), "bench." + n + "@bench.test");
+        return service.deleteContact(name);
+    }
+}
@@ -8,9 +8,15 @@ import com.khan.fazal.intern.controller.ContactController;
  * This class initializes and starts the application by
  * delegating control to the ContactController, which handles
  * user interaction through CLI or GUI based on user input.
+ * When arguments are given, they are run as a single headless
+ * command and the process exits with the command's status.
  */
 public class Main {
     public static void main(String[] args) {
-        new ContactController().launchApp();
+        ContactController controller = new ContactController();
+        if (args.length > 0) {
+            System.exit(controller.runCommand(args));
+        }
+        controller.launchApp();
     }
 }
@@ -1,9 +1,31 @@
 package com.khan.fazal.intern.controller;
 
+import com.khan.fazal.intern.dao.BinarySnapshot;
+import com.khan.fazal.intern.dao.ContactRepository;
+import com.khan.fazal.intern.dao.ContactStore;
+import com.khan.fazal.intern.dao.ShardedContactRepository;
+import com.khan.fazal.intern.model.Contact;
+import com.khan.fazal.intern.service.ContactService;
+import com.khan.fazal.intern.service.ImportResult;
+import com.khan.fazal.intern.utils.Metrics;
+import com.khan.fazal.intern.utils.PrintDash;
 import com.khan.fazal.intern.view.ContactGUI;
 import com.khan.fazal.intern.view.ContactView;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
 
 /**
  * Handles the initial interaction with the user and launches
@@ -11,9 +33,37 @@ import java.util.Scanner;
  *
  * This class serves as the main controller responsible for
  * deciding the interaction mode and initiating the respective
- * view components accordingly.
+ * view components accordingly. It also runs single commands given
+ * on the command line, without prompting and without loading Swing,
+ * so the contact book can be used from scripts and cron jobs.
  */
 public class ContactController {
+    /** The command succeeded. */
+    public static final int EXIT_OK = 0;
+    /** Nothing matched, or some rows were rejected. */
+    public static final int EXIT_NOT_FOUND = 1;
+    /** The command line was not understood. */
+    public static final int EXIT_USAGE = 2;
+    /** A file could not be read or written. */
+    public static final int EXIT_IO_ERROR = 3;
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final String[] HEADER = {"Name", "Phone", "Email"};
+    private static final List<Function<Contact, String>> COLUMNS =
+            List.of(Contact::getName, Contact::getPhone, Contact::getEmail);
+    private static final String USAGE = """
+            Usage: ContactManager [command [args]]
+              (no command)                  interactive CLI or GUI
+              search <query> [--csv]        print matching contacts
+              add <name> <phone> <email>    add a contact
+              delete <name>                 delete a contact by name
+              import <file|->               import CSV rows (name,phone,email)
+              export [file|-]               write all contacts as CSV
+              stats                         print book statistics
+              convert (to-binary|to-csv) <source> <target>
+              serve [port] [address]        serve JSON endpoints over HTTP (default port 8080,
+                                            loopback only unless an address is given)
+            Exit status: 0 ok, 1 not found or rows rejected, 2 usage error, 3 I/O error""";
 
     /**
      * Displays a welcome message and prompts the user to choose
@@ -36,4 +86,235 @@ public class ContactController {
             default -> System.out.println("Invalid choice. Exiting...");
         }
     }
+
+    /**
+     * Runs a single non-interactive command. Results go to standard
+     * output, diagnostics to standard error.
+     *
+     * @param args the command name followed by its arguments
+     * @return the process exit status, one of the {@code EXIT_} constants
+     */
+    public int runCommand(String[] args) {
+        String command = args[0];
+        try {
+            return switch (command) {
+                case "search" -> search(args);
+                case "add" -> add(args);
+                case "delete" -> delete(args);
+                case "import" -> importContacts(args);
+                case "export" -> export(args);
+                case "stats" -> stats(args);
+                case "convert" -> convert(args);
+                case "serve" -> serve(args);
+                case "help", "-h", "--help" -> {
+                    System.out.println(USAGE);
+                    yield EXIT_OK;
+                }
+                default -> usage("Unknown command: " + command);
+            };
+        } catch (IOException e) {
+            System.err.println(command + " failed: " + e.getMessage());
+            return EXIT_IO_ERROR;
+        }
+    }
+
+    /**
+     * Prints matching contacts as a table, or as CSV with {@code --csv}.
+     * A single query is answered by one scan over the book, which is
+     * cheaper than building the search indexes for it.
+     */
+    private int search(String[] args) throws IOException {
+        boolean csv = args.length == 3 && args[2].equals("--csv");
+        if (args.length != 2 && !csv) return usage("search <query> [--csv]");
+
+        List<Contact> results;
+        try (ContactService service = new ContactService()) {
+            results = service.scanContacts(args[1]);
+        }
+        Writer out = PrintDash.stdout();
+        if (csv) {
+            for (Contact c : results) {
+                out.write(c.toString());
+                out.write(System.lineSeparator());
+            }
+        } else if (!results.isEmpty()) {
+            PrintDash.printTable(HEADER, results.iterator(), COLUMNS,
+                    PrintDash.measure(HEADER, results, COLUMNS), out);
+        }
+        out.flush();
+        return results.isEmpty() ? EXIT_NOT_FOUND : EXIT_OK;
+    }
+
+    /**
+     * Adds a single contact.
+     */
+    private int add(String[] args) {
+        if (args.length != 4) return usage("add <name> <phone> <email>");
+        try (ContactService service = new ContactService()) {
+            if (!service.addContact(args[1], args[2], args[3])) {
+                System.err.println("Invalid name, phone or email, or contact already exists.");
+                return EXIT_NOT_FOUND;
+            }
+        }
+        return EXIT_OK;
+    }
+
+    /**
+     * Deletes a single contact by name.
+     */
+    private int delete(String[] args) {
+        if (args.length != 2) return usage("delete <name>");
+        try (ContactService service = new ContactService()) {
+            if (!service.deleteContact(args[1])) {
+                System.err.println("No contact found with that name.");
+                return EXIT_NOT_FOUND;
+            }
+        }
+        return EXIT_OK;
+    }
+
+    /**
+     * Imports CSV rows from a file, or from standard input for {@code -}.
+     * Rejected rows are listed on standard error.
+     */
+    private int importContacts(String[] args) throws IOException {
+        if (args.length != 2) return usage("import <file|->");
+
+        ImportResult result;
+        try (BufferedReader in = args[1].equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in))
+                : Files.newBufferedReader(Paths.get(args[1]));
+             ContactService service = new ContactService()) {
+            result = service.importContacts(in);
+        }
+        System.out.println("Imported " + result.getImported() + " contacts.");
+        for (ImportResult.Reject reject : result.getRejects()) {
+            System.err.println("line " + reject.lineNumber() + ": " + reject.reason() + " (" + reject.line() + ")");
+        }
+        return result.getRejects().isEmpty() ? EXIT_OK : EXIT_NOT_FOUND;
+    }
+
+    /**
+     * Streams all contacts as CSV to a file, or to standard output when no
+     * file or {@code -} is given.
+     */
+    private int export(String[] args) throws IOException {
+        if (args.length > 2) return usage("export [file|-]");
+
+        try (ContactService service = new ContactService()) {
+            if (args.length == 1 || args[1].equals("-")) {
+                Writer out = PrintDash.stdout();
+                service.exportContacts(out);
+                out.flush();
+            } else {
+                try (Writer out = Files.newBufferedWriter(Paths.get(args[1]))) {
+                    int count = service.exportContacts(out);
+                    System.out.println("Exported " + count + " contacts.");
+                }
+            }
+        }
+        return EXIT_OK;
+    }
+
+    /**
+     * Prints the size of the book, its files and how long it took to load,
+     * followed by the {@link Metrics} recorded while loading, including the
+     * book and index gauges the service publishes.
+     */
+    private int stats(String[] args) throws IOException {
+        if (args.length != 1) return usage("stats");
+
+        long started = System.nanoTime();
+        ContactStore repository = ContactStore.open();
+        try (ContactService service = new ContactService(repository)) {
+            long loadMs = (System.nanoTime() - started) / 1_000_000;
+
+            List<ContactRepository> files = repository instanceof ShardedContactRepository sharded
+                    ? sharded.getShards()
+                    : List.of((ContactRepository) repository);
+            long fileBytes = 0;
+            long logBytes = 0;
+            for (ContactRepository file : files) {
+                Path csv = Paths.get(file.getFilePath());
+                Path log = Paths.get(file.getFilePath() + ".log");
+                fileBytes += Files.exists(csv) ? Files.size(csv) : 0;
+                logBytes += Files.exists(log) ? Files.size(log) : 0;
+            }
+            System.out.println("contacts:    " + service.size());
+            System.out.println("file:        " + Paths.get(repository.getFilePath()));
+            System.out.println("shards:      " + files.size());
+            System.out.println("file bytes:  " + fileBytes);
+            System.out.println("persistence: " + repository.getPersistenceMode().name().toLowerCase().replace('_', '-'));
+            System.out.println("log bytes:   " + logBytes);
+            System.out.println("load ms:     " + loadMs);
+            System.out.print(Metrics.report());
+        }
+        return EXIT_OK;
+    }
+
+    /**
+     * Converts a contact book between the CSV and binary snapshot formats.
+     */
+    private int convert(String[] args) throws IOException {
+        if (args.length != 4) return usage("convert (to-binary|to-csv) <source> <target>");
+
+        int count = switch (args[1]) {
+            case "to-binary" -> BinarySnapshot.csvToBinary(Paths.get(args[2]), Paths.get(args[3]));
+            case "to-csv" -> BinarySnapshot.binaryToCsv(Paths.get(args[2]), Paths.get(args[3]));
+            default -> -1;
+        };
+        if (count < 0) return usage("Unknown conversion: " + args[1]);
+        System.out.println("Converted " + count + " contacts to " + args[3]);
+        return EXIT_OK;
+    }
+
+    /**
+     * Serves the contact book over HTTP until the process is stopped, on
+     * the loopback interface unless an address such as {@code 0.0.0.0}
+     * is given.
+     */
+    private int serve(String[] args) throws IOException {
+        if (args.length > 3) return usage("serve [port] [address]");
+        int port;
+        try {
+            port = args.length >= 2 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        } catch (NumberFormatException e) {
+            return usage("Invalid port: " + args[1]);
+        }
+        if (port < 0 || port > 0xFFFF) return usage("Invalid port: " + args[1]);
+        InetAddress address;
+        try {
+            address = args.length == 3 ? InetAddress.getByName(args[2]) : InetAddress.getLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return usage("Unknown address: " + args[2]);
+        }
+
+        ContactService service = new ContactService();
+        ContactHttpServer server = new ContactHttpServer(service, new InetSocketAddress(address, port));
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            service.close();
+            stopped.countDown();
+        }, "contact-http-shutdown"));
+        server.start();
+        String host = args.length == 3 ? args[2] : "localhost";
+        System.out.println("Serving contacts on http://" + host + ":" + server.getPort() + "/contacts");
+
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return EXIT_OK;
+    }
+
+    /**
+     * Prints an error and the usage text to standard error.
+     */
+    private static int usage(String message) {
+        System.err.println(message);
+        System.err.println(USAGE);
+        return EXIT_USAGE;
+    }
 }
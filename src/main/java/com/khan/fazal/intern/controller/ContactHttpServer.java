@@ -0,0 +1,359 @@
+package com.khan.fazal.intern.controller;
+
+import com.khan.fazal.intern.model.Contact;
+import com.khan.fazal.intern.service.CacheStats;
+import com.khan.fazal.intern.service.ContactService;
+import com.khan.fazal.intern.service.SearchOrder;
+import com.khan.fazal.intern.service.SearchPage;
+import com.khan.fazal.intern.utils.Json;
+import com.khan.fazal.intern.utils.Metrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded HTTP server exposing the contact book as JSON endpoints on top
+ * of a {@link ContactService}.
+ *
+ * <pre>
+ *   GET    /contacts?q=prefix   search (all contacts without q), name order
+ *   GET    /contacts?q=..&amp;fuzzy=true   typo-tolerant name search, closest first
+ *   GET    /contacts?q=..&amp;limit=50&amp;cursor=..&amp;order=relevance
+ *                               one page of results, name order by default;
+ *                               body {"contacts":[..],"next":cursor or null}
+ *   GET    /contacts/{name}     one contact, 404 if missing
+ *   POST   /contacts            add; body {"name":..,"phone":..,"email":..}
+ *   DELETE /contacts/{name}     delete, 404 if missing
+ *   GET    /stats               contact count and search cache counters
+ *   GET    /metrics             operation latencies, counters and gauges as text
+ * </pre>
+ *
+ * The server listens on the loopback interface unless given another
+ * address, since the endpoints are not authenticated. Undecodable paths
+ * and parameters are answered with 400, unexpected failures with 500.
+ *
+ * Each exchange is handled on its own virtual thread, so slow clients do
+ * not tie up a pool. Small result sets are sent with a content length;
+ * larger ones are streamed with chunked encoding, one contact at a time,
+ * without building the whole body in memory.
+ */
+public class ContactHttpServer {
+    private static final int STREAM_THRESHOLD = 256;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String JSON = "application/json; charset=utf-8";
+
+    private final ContactService service;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Creates a server bound to the given port on the loopback interface.
+     *
+     * @param service the service to expose
+     * @param port    the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public ContactHttpServer(ContactService service, int port) throws IOException {
+        this(service, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Creates a server bound to the given address. Binding anything but
+     * the loopback interface exposes the unauthenticated endpoints to the
+     * network.
+     *
+     * @param service the service to expose
+     * @param address the address and port to listen on
+     * @throws IOException if the address cannot be bound
+     */
+    public ContactHttpServer(ContactService service, InetSocketAddress address) throws IOException {
+        this.service = service;
+        this.server = HttpServer.create(address, 0);
+        server.createContext("/contacts", this::handleContacts);
+        server.createContext("/stats", this::handleStats);
+        server.createContext("/metrics", this::handleMetrics);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the port the server is bound to.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server, giving in-flight exchanges up to a second to finish.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    /**
+     * Dispatches requests under {@code /contacts}, answering undecodable
+     * input with 400 and unexpected failures with 500.
+     */
+    private void handleContacts(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                dispatchContacts(exchange);
+            } catch (IllegalArgumentException e) {
+                if (exchange.getResponseCode() < 0) sendError(exchange, 400, "Bad request: " + e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println("Error handling " + exchange.getRequestMethod() + " "
+                        + exchange.getRequestURI() + ": " + e);
+                if (exchange.getResponseCode() < 0) sendError(exchange, 500, "Internal server error.");
+            }
+        }
+    }
+
+    private void dispatchContacts(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getRawPath();
+        String name = path.length() > "/contacts/".length()
+                ? decode(path.substring("/contacts/".length()))
+                : null;
+        String method = exchange.getRequestMethod();
+
+        if (name == null && method.equals("GET")) {
+            search(exchange);
+        } else if (name == null && method.equals("POST")) {
+            add(exchange);
+        } else if (name != null && method.equals("GET")) {
+            Contact contact = service.getContact(name);
+            if (contact == null) {
+                sendError(exchange, 404, "No contact found with that name.");
+            } else {
+                sendJson(exchange, 200, contactJson(contact));
+            }
+        } else if (name != null && method.equals("DELETE")) {
+            if (service.deleteContact(name)) {
+                exchange.sendResponseHeaders(204, -1);
+            } else {
+                sendError(exchange, 404, "No contact found with that name.");
+            }
+        } else {
+            sendError(exchange, 405, "Method not allowed.");
+        }
+    }
+
+    /**
+     * Answers a search, streaming large result sets.
+     */
+    private void search(HttpExchange exchange) throws IOException {
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        String query = queryParam(rawQuery, "q");
+        boolean fuzzy = "true".equals(queryParam(rawQuery, "fuzzy"));
+        String limit = queryParam(rawQuery, "limit");
+        if (limit != null && !fuzzy) {
+            searchPage(exchange, query == null ? "" : query, limit, rawQuery);
+            return;
+        }
+        List<Contact> results = query == null ? service.getContacts()
+                : fuzzy ? service.searchFuzzy(query)
+                : service.searchContacts(query);
+
+        if (results.size() <= STREAM_THRESHOLD) {
+            StringWriter body = new StringWriter();
+            writeArray(body, results);
+            sendJson(exchange, 200, body.toString());
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(200, 0);
+        Writer out = new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), BUFFER_SIZE);
+        writeArray(out, results);
+        out.flush();
+    }
+
+    /**
+     * Answers a search with one page of results and the cursor of the next.
+     */
+    private void searchPage(HttpExchange exchange, String query, String limit, String rawQuery)
+            throws IOException {
+        SearchOrder order = "relevance".equals(queryParam(rawQuery, "order"))
+                ? SearchOrder.RELEVANCE : SearchOrder.NAME;
+        SearchPage page;
+        try {
+            page = service.searchPage(query, order, Integer.parseInt(limit), queryParam(rawQuery, "cursor"));
+        } catch (NumberFormatException e) {
+            sendError(exchange, 400, "Invalid limit: " + limit);
+            return;
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        }
+
+        StringWriter body = new StringWriter();
+        body.write("{\"contacts\":");
+        writeArray(body, page.contacts());
+        body.write(",\"next\":");
+        if (page.hasMore()) {
+            Json.writeString(body, page.nextCursor());
+        } else {
+            body.write("null");
+        }
+        body.write('}');
+        sendJson(exchange, 200, body.toString());
+    }
+
+    /**
+     * Adds a contact from a JSON body.
+     */
+    private void add(HttpExchange exchange) throws IOException {
+        Map<String, String> fields;
+        try {
+            fields = Json.parseObject(readBody(exchange.getRequestBody()));
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, "Invalid JSON: " + e.getMessage());
+            return;
+        }
+        String name = fields.get("name");
+        String phone = fields.get("phone");
+        String email = fields.get("email");
+        if (name == null || name.isBlank() || phone == null || email == null) {
+            sendError(exchange, 400, "name, phone and email are required.");
+            return;
+        }
+
+        if (service.addContact(name, phone, email)) {
+            sendJson(exchange, 201, contactJson(new Contact(ContactService.toTitleCase(name), phone, email)));
+        } else {
+            sendError(exchange, 409, "Invalid name, phone or email, or contact already exists.");
+        }
+    }
+
+    /**
+     * Reports the contact count and search cache counters.
+     */
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendError(exchange, 405, "Method not allowed.");
+                return;
+            }
+            CacheStats cache = service.getCacheStats();
+            sendJson(exchange, 200, "{\"contacts\":" + service.getContacts().size()
+                    + ",\"cache\":{\"hits\":" + cache.hits()
+                    + ",\"misses\":" + cache.misses()
+                    + ",\"evictions\":" + cache.evictions()
+                    + ",\"invalidations\":" + cache.invalidations()
+                    + ",\"entries\":" + cache.entries() + "}}");
+        }
+    }
+
+    /**
+     * Reports the {@link Metrics} as plain text.
+     */
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendError(exchange, 405, "Method not allowed.");
+                return;
+            }
+            byte[] body = (Metrics.ENABLED ? Metrics.report() : "Metrics are disabled.\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    private static void writeArray(Writer out, List<Contact> contacts) throws IOException {
+        out.write('[');
+        for (int i = 0; i < contacts.size(); i++) {
+            if (i > 0) out.write(',');
+            writeContact(out, contacts.get(i));
+        }
+        out.write(']');
+    }
+
+    private static void writeContact(Writer out, Contact c) throws IOException {
+        out.write("{\"name\":");
+        Json.writeString(out, c.getName());
+        out.write(",\"phone\":");
+        Json.writeString(out, c.getPhone());
+        out.write(",\"email\":");
+        Json.writeString(out, c.getEmail());
+        out.write('}');
+    }
+
+    private static String contactJson(Contact c) throws IOException {
+        StringWriter out = new StringWriter();
+        writeContact(out, c);
+        return out.toString();
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringWriter body = new StringWriter();
+        body.write("{\"error\":");
+        Json.writeString(body, message);
+        body.write('}');
+        sendJson(exchange, status, body.toString());
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        in.transferTo(body);
+        return body.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes a URL-encoded path segment or parameter value.
+     *
+     * @throws IllegalArgumentException if it contains a malformed escape
+     */
+    private static String decode(String raw) {
+        try {
+            return URLDecoder.decode(raw, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid escape in " + raw, e);
+        }
+    }
+
+    /**
+     * Returns the decoded value of a query parameter, or null if absent.
+     */
+    private static String queryParam(String rawQuery, String key) {
+        if (rawQuery == null) return null;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String k = eq < 0 ? pair : pair.substring(0, eq);
+            if (k.equals(key)) {
+                return eq < 0 ? "" : decode(pair.substring(eq + 1));
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,203 @@
+package com.khan.fazal.intern.dao;
+
+import com.khan.fazal.intern.model.Contact;
+import com.khan.fazal.intern.utils.Trie;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Versioned binary snapshot of the contact book.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   int   magic       'CBK1'
+ *   short version
+ *   long  seq         last journal sequence covered by the snapshot
+ *   int   count       number of contact records
+ *   long  checksum    CRC32 of everything after the header
+ *   count x record    name, phone, email as (unsigned short length, UTF-8 bytes)
+ *   name index        the serialized {@link Trie}, using record positions as contact IDs
+ * </pre>
+ *
+ * The file is memory-mapped and read back in a single pass, handing the
+ * {@code ContactService} a ready-made name index instead of rebuilding it.
+ * Loaded contacts must be assigned IDs in file order for the index to match.
+ */
+public class BinarySnapshot {
+    private static final int MAGIC = 0x43424B31;
+    private static final short VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 2 + 8 + 4 + 8;
+    private static final int CHECKSUM_OFFSET = HEADER_SIZE - 8;
+
+    private final List<Contact> contacts;
+    private final Trie nameIndex;
+    private final long seq;
+
+    private BinarySnapshot(List<Contact> contacts, Trie nameIndex, long seq) {
+        this.contacts = contacts;
+        this.nameIndex = nameIndex;
+        this.seq = seq;
+    }
+
+    /**
+     * Returns the contacts stored in the snapshot, in file order.
+     */
+    public List<Contact> getContacts() { return contacts; }
+
+    /**
+     * Returns the prebuilt name index stored in the snapshot.
+     */
+    public Trie getNameIndex() { return nameIndex; }
+
+    /**
+     * Returns the last journal sequence number covered by the snapshot.
+     */
+    public long getSeq() { return seq; }
+
+    /**
+     * Writes the contacts and a name index built over them to the given
+     * file. The file is written to a temporary sibling and atomically moved
+     * into place once it has been forced to disk.
+     *
+     * @param path     target file
+     * @param contacts contacts to write
+     * @param seq      last journal sequence covered by the contacts
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path path, Collection<Contact> contacts, long seq) throws IOException {
+        Trie index = new Trie();
+        int position = 0;
+        for (Contact c : contacts) {
+            index.insert(c.getName(), position++);
+        }
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream file = new FileOutputStream(tmp.toFile())) {
+            DataOutputStream header = new DataOutputStream(file);
+            header.writeInt(MAGIC);
+            header.writeShort(VERSION);
+            header.writeLong(seq);
+            header.writeInt(contacts.size());
+            header.writeLong(0);
+
+            DataOutputStream body = new DataOutputStream(
+                    new BufferedOutputStream(new CheckedOutputStream(file, crc), 1 << 16));
+            for (Contact c : contacts) {
+                writeField(body, c.getName());
+                writeField(body, c.getPhone());
+                writeField(body, c.getEmail());
+            }
+            index.writeTo(body);
+            body.flush();
+
+            file.getChannel().write(ByteBuffer.allocate(8).putLong(0, crc.getValue()), CHECKSUM_OFFSET);
+            file.getFD().sync();
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps and reads a snapshot file, verifying its header and checksum.
+     *
+     * @param path the snapshot file
+     * @return the decoded snapshot
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static BinarySnapshot read(Path path) throws IOException {
+        MappedByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buf.limit() < HEADER_SIZE || buf.getInt() != MAGIC) {
+            throw new IOException("Not a contact snapshot: " + path);
+        }
+        short version = buf.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + ": " + path);
+        }
+        long seq = buf.getLong();
+        int count = buf.getInt();
+        long checksum = buf.getLong();
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.slice());
+        if (crc.getValue() != checksum) {
+            throw new IOException("Snapshot checksum mismatch: " + path);
+        }
+
+        List<Contact> contacts = new ArrayList<>(count);
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < count; i++) {
+            String name = readField(buf, scratch);
+            String phone = readField(buf, scratch);
+            String email = readField(buf, scratch);
+            contacts.add(new Contact(name, phone, email));
+        }
+        Trie index = Trie.readFrom(buf);
+        return new BinarySnapshot(contacts, index, seq);
+    }
+
+    /**
+     * Converts a CSV contact book into a binary snapshot.
+     *
+     * @param csv    source CSV file
+     * @param binary target snapshot file
+     * @return number of contacts converted
+     * @throws IOException if either file cannot be accessed
+     */
+    public static int csvToBinary(Path csv, Path binary) throws IOException {
+        List<Contact> contacts = new ArrayList<>();
+        long seq = CsvContactLoader.load(csv, contacts);
+        write(binary, contacts, seq);
+        return contacts.size();
+    }
+
+    /**
+     * Converts a binary snapshot back into a CSV contact book.
+     *
+     * @param binary source snapshot file
+     * @param csv    target CSV file
+     * @return number of contacts converted
+     * @throws IOException if either file cannot be accessed
+     */
+    public static int binaryToCsv(Path binary, Path csv) throws IOException {
+        BinarySnapshot snapshot = read(binary);
+        try (BufferedWriter bw = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            if (snapshot.seq > 0) {
+                bw.write("#seq=" + snapshot.seq);
+                bw.newLine();
+            }
+            for (Contact c : snapshot.contacts) {
+                bw.write(c.toString());
+                bw.newLine();
+            }
+        }
+        return snapshot.contacts.size();
+    }
+
+    private static void writeField(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("Contact field too long for snapshot: " + bytes.length + " bytes");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readField(ByteBuffer buf, byte[] scratch) {
+        int len = Short.toUnsignedInt(buf.getShort());
+        byte[] bytes = len <= scratch.length ? scratch : new byte[len];
+        buf.get(bytes, 0, len);
+        return new String(bytes, 0, len, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,165 @@
+package com.khan.fazal.intern.dao;
+
+import com.khan.fazal.intern.model.Contact;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar, append-only storage for contact fields.
+ *
+ * Instead of three {@code String}s per contact, the store keeps:
+ * <ul>
+ *   <li>names as UTF-8 bytes in one growable arena, with an offset per row;</li>
+ *   <li>phones of exactly ten ASCII digits packed into a {@code long}, with
+ *       any other value kept as a string on the side;</li>
+ *   <li>emails split at the {@code @}: the local part in a second byte arena
+ *       and the domain as an index into a shared dictionary, since most
+ *       contacts share a handful of domains.</li>
+ * </ul>
+ *
+ * {@link #add} returns a {@link Contact} view that decodes its fields from
+ * the columns on every call, so the repository holds one small object per
+ * contact and no field strings. Rows are never reclaimed; a deleted
+ * contact's bytes stay in the arena until the process restarts. The store
+ * is not thread-safe for writers; readers must be ordered after the write
+ * that added their row, as the repository's locking already ensures.
+ */
+public class CompactContactStore {
+    private static final long IRREGULAR_PHONE = -1;
+    private static final int NO_DOMAIN = -1;
+
+    private byte[] names = new byte[1 << 12];
+    private byte[] locals = new byte[1 << 12];
+    private int[] nameStart = new int[65];
+    private int[] localStart = new int[65];
+    private long[] phones = new long[64];
+    private int[] domainOf = new int[64];
+    private int rows;
+
+    private final List<String> domains = new ArrayList<>();
+    private final Map<String, Integer> domainIds = new HashMap<>();
+    private final Map<Integer, String> irregularPhones = new HashMap<>();
+
+    /**
+     * A contact whose fields are decoded from a row of the store.
+     */
+    private static final class View extends Contact {
+        private final CompactContactStore store;
+        private final int row;
+
+        View(CompactContactStore store, int row) {
+            this.store = store;
+            this.row = row;
+        }
+
+        @Override
+        public String getName() { return store.name(row); }
+
+        @Override
+        public String getPhone() { return store.phone(row); }
+
+        @Override
+        public String getEmail() { return store.email(row); }
+    }
+
+    /**
+     * Copies the contact's fields into a new row.
+     *
+     * @param contact the contact to store
+     * @return a view of the stored row, carrying the contact's ID
+     */
+    public Contact add(Contact contact) {
+        ensureCapacity(rows + 1);
+        int row = rows;
+
+        byte[] name = contact.getName().getBytes(StandardCharsets.UTF_8);
+        names = append(names, nameStart[row], name);
+        nameStart[row + 1] = nameStart[row] + name.length;
+
+        String phone = contact.getPhone();
+        phones[row] = pack(phone);
+        if (phones[row] == IRREGULAR_PHONE) irregularPhones.put(row, phone);
+
+        String email = contact.getEmail();
+        int at = email.indexOf('@');
+        byte[] local = (at < 0 ? email : email.substring(0, at)).getBytes(StandardCharsets.UTF_8);
+        locals = append(locals, localStart[row], local);
+        localStart[row + 1] = localStart[row] + local.length;
+        domainOf[row] = at < 0 ? NO_DOMAIN : domainIds.computeIfAbsent(email.substring(at + 1), d -> {
+            domains.add(d);
+            return domains.size() - 1;
+        });
+
+        rows++;
+        View view = new View(this, row);
+        view.setId(contact.getId());
+        return view;
+    }
+
+    /**
+     * Returns the number of rows stored, including those of deleted contacts.
+     */
+    public int size() {
+        return rows;
+    }
+
+    private String name(int row) {
+        return new String(names, nameStart[row], nameStart[row + 1] - nameStart[row], StandardCharsets.UTF_8);
+    }
+
+    private String phone(int row) {
+        long packed = phones[row];
+        if (packed == IRREGULAR_PHONE) return irregularPhones.get(row);
+
+        byte[] digits = new byte[10];
+        for (int i = 9; i >= 0; i--) {
+            digits[i] = (byte) ('0' + packed % 10);
+            packed /= 10;
+        }
+        return new String(digits, StandardCharsets.ISO_8859_1);
+    }
+
+    private String email(int row) {
+        String local = new String(locals, localStart[row], localStart[row + 1] - localStart[row],
+                StandardCharsets.UTF_8);
+        int domain = domainOf[row];
+        return domain == NO_DOMAIN ? local : local + "@" + domains.get(domain);
+    }
+
+    /**
+     * Packs a phone of exactly ten ASCII digits into a long.
+     *
+     * @return the packed value, or {@link #IRREGULAR_PHONE} for any other string
+     */
+    private static long pack(String phone) {
+        if (phone.length() != 10) return IRREGULAR_PHONE;
+        long packed = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = phone.charAt(i);
+            if (c < '0' || c > '9') return IRREGULAR_PHONE;
+            packed = packed * 10 + (c - '0');
+        }
+        return packed;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= phones.length) return;
+        int capacity = Math.max(needed, phones.length * 2);
+        phones = Arrays.copyOf(phones, capacity);
+        domainOf = Arrays.copyOf(domainOf, capacity);
+        nameStart = Arrays.copyOf(nameStart, capacity + 1);
+        localStart = Arrays.copyOf(localStart, capacity + 1);
+    }
+
+    private static byte[] append(byte[] arena, int at, byte[] bytes) {
+        if (at + bytes.length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(at + bytes.length, arena.length * 2));
+        }
+        System.arraycopy(bytes, 0, arena, at, bytes.length);
+        return arena;
+    }
+}
@@ -0,0 +1,333 @@
+package com.khan.fazal.intern.dao;
+
+import com.khan.fazal.intern.utils.Metrics;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of contact mutations.
+ *
+ * Each record is one line of the form {@code <crc> <seq> <op> <payload>},
+ * where the CRC32 covers everything after the first space. Backslashes,
+ * carriage returns and line feeds in the payload are escaped as
+ * {@code \\}, {@code \r} and {@code \n}, so a record never spans lines.
+ * Records are written to the file immediately but only forced to disk in
+ * groups: once {@code groupSize} records are pending, or when
+ * {@link #sync()} is called. A torn record at the tail of the log fails
+ * its checksum and is truncated away; a corrupt record followed by intact
+ * ones is skipped, and the records after it are still replayed.
+ *
+ * During compaction the live log is rotated aside so new mutations can keep
+ * appending while the snapshot is written; the rotated file is discarded
+ * once the snapshot is safely on disk.
+ *
+ * Forcing the log to disk is timed as {@code journal.sync}; appended and
+ * replayed bytes count towards {@code io.write.bytes} and
+ * {@code io.read.bytes}.
+ */
+class ContactJournal implements Closeable {
+    static final char ADD = 'A';
+    static final char DELETE = 'D';
+    private static final Metrics.Timer SYNC_TIMER = Metrics.timer("journal.sync");
+    private static final Metrics.Counter BYTES_READ = Metrics.counter("io.read.bytes");
+    private static final Metrics.Counter BYTES_WRITTEN = Metrics.counter("io.write.bytes");
+
+    private final Path path;
+    private final Path rotatedPath;
+    private final int groupSize;
+    private FileChannel channel;
+    private int recordCount;
+    private int unsynced;
+
+    /**
+     * Creates a journal backed by the given log file. The file is not
+     * opened until {@link #open()} is called, so it can be replayed first.
+     *
+     * @param path      location of the log file
+     * @param groupSize number of records to buffer before forcing to disk
+     */
+    ContactJournal(Path path, int groupSize) {
+        this.path = path;
+        this.rotatedPath = path.resolveSibling(path.getFileName() + ".old");
+        this.groupSize = groupSize;
+    }
+
+    /**
+     * Replays the rotated log (if a compaction was interrupted) followed by
+     * the live log, handing every intact record newer than {@code afterSeq}
+     * to the consumer. Corrupt records between intact ones are skipped; a
+     * torn tail is truncated away so later appends start on a clean line.
+     *
+     * @param afterSeq sequence number already covered by the snapshot
+     * @param apply    receives the operation and payload of each record
+     * @return the highest sequence number seen, or {@code afterSeq} if none
+     * @throws IOException if a log file cannot be read
+     */
+    long replay(long afterSeq, BiConsumer<Character, String> apply) throws IOException {
+        long lastSeq = replayFile(rotatedPath, afterSeq, apply);
+        return replayFile(path, lastSeq, apply);
+    }
+
+    /**
+     * Returns true if a rotated log was left behind by an interrupted compaction.
+     */
+    boolean hasRotated() {
+        return Files.exists(rotatedPath);
+    }
+
+    /**
+     * Opens the live log for appending.
+     *
+     * @throws IOException if the file cannot be opened
+     */
+    synchronized void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Appends a record to the log, forcing the pending group to disk
+     * once it reaches the configured size.
+     *
+     * @param seq     sequence number of the mutation
+     * @param op      {@link #ADD} or {@link #DELETE}
+     * @param payload CSV line for adds, contact name for deletes
+     * @throws IOException if the record cannot be written
+     */
+    synchronized void append(long seq, char op, String payload) throws IOException {
+        writeFully(ByteBuffer.wrap(encode(seq, op, payload)));
+        recordCount++;
+        if (++unsynced >= groupSize) {
+            sync();
+        }
+    }
+
+    /**
+     * Appends a batch of records with consecutive sequence numbers in as few
+     * writes as possible and forces them to disk once at the end.
+     *
+     * @param firstSeq sequence number of the first record
+     * @param op       {@link #ADD} or {@link #DELETE}
+     * @param payloads payload of each record
+     * @throws IOException if the records cannot be written
+     */
+    synchronized void appendBatch(long firstSeq, char op, List<String> payloads) throws IOException {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream(1 << 16);
+        long seq = firstSeq;
+        for (String payload : payloads) {
+            batch.write(encode(seq++, op, payload));
+            if (batch.size() >= 1 << 20) {
+                writeFully(ByteBuffer.wrap(batch.toByteArray()));
+                batch.reset();
+            }
+        }
+        writeFully(ByteBuffer.wrap(batch.toByteArray()));
+        recordCount += payloads.size();
+        unsynced += payloads.size();
+        sync();
+    }
+
+    /**
+     * Encodes a record as {@code <crc> <seq> <op> <payload>\n}.
+     */
+    private static byte[] encode(long seq, char op, String payload) {
+        byte[] body = (seq + " " + op + " " + escape(payload)).getBytes(StandardCharsets.UTF_8);
+        byte[] crc = String.format("%08x ", checksum(body, 0, body.length)).getBytes(StandardCharsets.US_ASCII);
+        byte[] record = Arrays.copyOf(crc, crc.length + body.length + 1);
+        System.arraycopy(body, 0, record, crc.length, body.length);
+        record[record.length - 1] = '\n';
+        return record;
+    }
+
+    /**
+     * Escapes backslashes and line breaks so the payload fits on one line.
+     */
+    private static String escape(String payload) {
+        if (payload.indexOf('\\') < 0 && payload.indexOf('\n') < 0 && payload.indexOf('\r') < 0) return payload;
+        StringBuilder sb = new StringBuilder(payload.length() + 8);
+        for (int i = 0; i < payload.length(); i++) {
+            char c = payload.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reverses {@link #escape}.
+     */
+    private static String unescape(String payload) {
+        if (payload.indexOf('\\') < 0) return payload;
+        StringBuilder sb = new StringBuilder(payload.length());
+        for (int i = 0; i < payload.length(); i++) {
+            char c = payload.charAt(i);
+            if (c != '\\' || i + 1 == payload.length()) {
+                sb.append(c);
+                continue;
+            }
+            char next = payload.charAt(++i);
+            sb.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+        }
+        return sb.toString();
+    }
+
+    private void writeFully(ByteBuffer buf) throws IOException {
+        BYTES_WRITTEN.add(buf.remaining());
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+
+    /**
+     * Forces all records written so far to disk.
+     *
+     * @throws IOException if the force fails
+     */
+    synchronized void sync() throws IOException {
+        if (unsynced > 0 && channel != null) {
+            long start = Metrics.start();
+            channel.force(false);
+            SYNC_TIMER.stop(start);
+            unsynced = 0;
+        }
+    }
+
+    /**
+     * Returns the number of records appended to the live log since it was opened or rotated.
+     */
+    synchronized int recordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Moves the live log aside and starts a fresh one. If a previous
+     * rotation was never discarded, the live records are appended to it
+     * instead so nothing is lost.
+     *
+     * @throws IOException if the files cannot be moved or reopened
+     */
+    synchronized void rotate() throws IOException {
+        sync();
+        channel.close();
+        if (Files.exists(rotatedPath)) {
+            Files.write(rotatedPath, Files.readAllBytes(path), StandardOpenOption.APPEND);
+            Files.delete(path);
+        } else {
+            Files.move(path, rotatedPath);
+        }
+        recordCount = 0;
+        open();
+    }
+
+    /**
+     * Deletes the rotated log once its records are covered by a snapshot.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    void discardRotated() throws IOException {
+        Files.deleteIfExists(rotatedPath);
+    }
+
+    /**
+     * Forces pending records to disk and closes the log.
+     *
+     * @throws IOException if the final force or close fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            sync();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Replays a single log file, skipping corrupt records between intact
+     * ones and truncating any corrupt or unterminated records at the end.
+     */
+    private long replayFile(Path file, long afterSeq, BiConsumer<Character, String> apply) throws IOException {
+        if (!Files.exists(file)) return afterSeq;
+
+        byte[] data = Files.readAllBytes(file);
+        BYTES_READ.add(data.length);
+        long lastSeq = afterSeq;
+        int start = 0;
+        int validEnd = 0;
+        int corrupt = 0;
+        int skipped = 0;
+
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] != '\n') continue;
+            int lineStart = start;
+            start = i + 1;
+            int space = indexOf(data, (byte) ' ', lineStart, i);
+            if (space < 0 || !hasChecksum(data, lineStart, space, i)) {
+                corrupt++;
+                continue;
+            }
+
+            String body = new String(data, space + 1, i - space - 1, StandardCharsets.UTF_8);
+            int seqEnd = body.indexOf(' ');
+            long seq = Long.parseLong(body.substring(0, seqEnd));
+            if (seq > lastSeq) {
+                apply.accept(body.charAt(seqEnd + 1), unescape(body.substring(seqEnd + 3)));
+                lastSeq = seq;
+            }
+            skipped += corrupt;
+            corrupt = 0;
+            validEnd = start;
+        }
+
+        if (skipped > 0) {
+            System.out.println("Skipped " + skipped + " corrupt journal records in " + file.getFileName() + ".");
+        }
+        if (validEnd < data.length) {
+            System.out.println("Discarding torn journal tail in " + file.getFileName() + ".");
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ch.truncate(validEnd);
+            }
+        }
+        return lastSeq;
+    }
+
+    /**
+     * Verifies the hex CRC32 stored in {@code data[start, space)} against the record body.
+     */
+    private static boolean hasChecksum(byte[] data, int start, int space, int end) {
+        try {
+            long stored = Long.parseLong(new String(data, start, space - start, StandardCharsets.US_ASCII), 16);
+            return stored == checksum(data, space + 1, end - space - 1);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static long checksum(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return crc.getValue();
+    }
+
+    private static int indexOf(byte[] data, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == b) return i;
+        }
+        return -1;
+    }
+}
@@ -1,87 +1,862 @@
 package com.khan.fazal.intern.dao;
 
 import com.khan.fazal.intern.model.Contact;
+import com.khan.fazal.intern.utils.Metrics;
+import com.khan.fazal.intern.utils.Trie;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 /**
  * Handles data persistence and retrieval for contact records.
  *
  * This repository provides mechanisms to load, save, add, and delete
  * contacts stored in a CSV file located in the resources folder.
+ *
+ * In {@link PersistenceMode#JOURNAL} mode each mutation is appended to a
+ * write-ahead log next to the CSV file instead of rewriting it. A background
+ * thread forces the log to disk in groups and periodically compacts it into
+ * a fresh CSV snapshot. The snapshot carries a {@code #seq=} header with the
+ * last log sequence it contains, so startup loads the snapshot and replays
+ * only the newer log records.
+ *
+ * In {@link PersistenceMode#WRITE_BEHIND} mode mutations only change the
+ * contacts in memory and return at once. A {@link WriteBehindWriter}
+ * rewrites the CSV file in the background when its {@link FlushPolicy}
+ * says so, with one rewrite covering every mutation since the last, and
+ * a shutdown hook flushes whatever is still pending.
+ *
+ * With binary snapshots enabled, every snapshot is also written as a
+ * {@link BinarySnapshot} next to the CSV file, and startup prefers it when
+ * it is at least as new as the CSV. The snapshot's prebuilt name index is
+ * handed to the service through {@link #getNameIndex()}.
+ *
+ * Every contact held in memory is assigned an integer ID, its slot in an
+ * ID table, so indexes can refer to contacts without copying their names.
+ * Slots of deleted contacts are left empty; IDs are reassigned on reload.
+ * A repository serving as one shard of a {@link ShardedContactRepository}
+ * hands out every {@code shardCount}-th ID starting at its shard number, so
+ * IDs stay unique across shards and name the shard that owns them.
+ *
+ * Contacts are keyed by their case-folded name, with phone and
+ * case-folded email as unique secondary keys, so lookups, updates and
+ * deletes are O(1) and duplicates are rejected on insert. Each key is a
+ * {@link KeyIndex} of contact IDs that derives keys from the contacts
+ * themselves rather than holding a copy of every key string. Rows loaded
+ * from an existing file that share a phone or email are kept; only the
+ * first of them is reachable through that key.
+ *
+ * With compact storage enabled ({@code -Dcontacts.storage=compact}) the
+ * fields of stored contacts live in a {@link CompactContactStore} and the
+ * repository hands out views decoding them, which keeps large books to a
+ * fraction of the heap at the cost of decoding on every read.
+ *
+ * Alongside the keys, contacts are kept in a list sorted by
+ * {@link Contact#NAME_ORDER}, maintained by binary-search insert and
+ * remove, so callers get a ready-sorted list instead of sorting the book
+ * on every render. Callers get an immutable copy of it, taken once after
+ * a change and shared until the next one, never the live list.
+ *
+ * Loads and snapshot writes are timed as {@code repo.load} and
+ * {@code repo.save}, and the bytes they move are counted in
+ * {@code io.read.bytes} and {@code io.write.bytes}, see {@link Metrics}.
  */
-public class ContactRepository {
-    private final String filePath = "src/main/resources/contacts.csv";
-    private final List<Contact> contacts = new ArrayList<>();
+public final class ContactRepository implements ContactStore {
+    static final String DEFAULT_FILE_PATH = "src/main/resources/contacts.csv";
+    private static final String SEQ_HEADER = "#seq=";
+    private static final int JOURNAL_GROUP_SIZE = 64;
+    private static final long JOURNAL_SYNC_INTERVAL_MS = 100;
+    private static final int COMPACTION_THRESHOLD = 10_000;
+    private static final Metrics.Timer LOAD_TIMER = Metrics.timer("repo.load");
+    private static final Metrics.Timer SAVE_TIMER = Metrics.timer("repo.save");
+    private static final Metrics.Counter BYTES_READ = Metrics.counter("io.read.bytes");
+    private static final Metrics.Counter BYTES_WRITTEN = Metrics.counter("io.write.bytes");
+
+    private final String filePath;
+    private final boolean binarySnapshot;
+    private final int idOffset;
+    private final int idStride;
+    private final List<Contact> sorted = new ArrayList<>();
+    private List<Contact> sortedSnapshot = List.of();
+    private final List<Contact> slots = new ArrayList<>();
+    private final KeyIndex byName = new KeyIndex(c -> c.getName().toLowerCase(), this::getById);
+    private final KeyIndex byPhone = new KeyIndex(Contact::getPhone, this::getById);
+    private final KeyIndex byEmail = new KeyIndex(c -> c.getEmail().toLowerCase(), this::getById);
+    private final CompactContactStore compactStore;
+    private final Object compactionLock = new Object();
+    private ContactJournal journal;
+    private ScheduledExecutorService journalWorker;
+    private WriteBehindWriter writeBehind;
+    private Thread shutdownHook;
+    private long seq;
+    private Trie nameIndex;
 
     /**
      * Constructor initializes the repository by loading contacts
-     * from the CSV file, if available.
+     * from the CSV file, if available, using the persistence mode
+     * configured through {@link PersistenceMode#fromSystemProperty()}.
+     * Binary snapshots are enabled with {@code -Dcontacts.snapshot=binary}
+     * and compact storage with {@code -Dcontacts.storage=compact}.
      */
     public ContactRepository() {
+        this(DEFAULT_FILE_PATH, PersistenceMode.fromSystemProperty(),
+                "binary".equalsIgnoreCase(System.getProperty("contacts.snapshot")),
+                "compact".equalsIgnoreCase(System.getProperty("contacts.storage")));
+    }
+
+    /**
+     * Creates a repository backed by the given CSV file, without binary snapshots.
+     *
+     * @param filePath path of the CSV file
+     * @param mode     how mutations are persisted
+     */
+    public ContactRepository(String filePath, PersistenceMode mode) {
+        this(filePath, mode, false);
+    }
+
+    /**
+     * Creates a repository backed by the given CSV file.
+     *
+     * @param filePath       path of the CSV file
+     * @param mode           how mutations are persisted
+     * @param binarySnapshot whether to also keep a binary snapshot next to the CSV
+     */
+    public ContactRepository(String filePath, PersistenceMode mode, boolean binarySnapshot) {
+        this(filePath, mode, binarySnapshot, false);
+    }
+
+    /**
+     * Creates a repository backed by the given CSV file.
+     *
+     * @param filePath       path of the CSV file
+     * @param mode           how mutations are persisted
+     * @param binarySnapshot whether to also keep a binary snapshot next to the CSV
+     * @param compact        whether to keep contact fields in a {@link CompactContactStore}
+     */
+    public ContactRepository(String filePath, PersistenceMode mode, boolean binarySnapshot, boolean compact) {
+        this(filePath, mode, binarySnapshot, compact, 0, 1, null);
+    }
+
+    /**
+     * Creates a repository in {@link PersistenceMode#WRITE_BEHIND} mode
+     * backed by the given CSV file, without binary snapshots.
+     *
+     * @param filePath    path of the CSV file
+     * @param flushPolicy when pending mutations are written to disk
+     */
+    public ContactRepository(String filePath, FlushPolicy flushPolicy) {
+        this(filePath, PersistenceMode.WRITE_BEHIND, false, false, 0, 1, flushPolicy);
+    }
+
+    /**
+     * Creates a repository serving as one shard of a
+     * {@link ShardedContactRepository}, without binary snapshots.
+     *
+     * @param filePath   path of the shard's CSV file
+     * @param mode       how mutations are persisted
+     * @param compact    whether to keep contact fields in a {@link CompactContactStore}
+     * @param shard      the shard number, used as the first ID
+     * @param shardCount the number of shards, used as the ID step
+     */
+    ContactRepository(String filePath, PersistenceMode mode, boolean compact, int shard, int shardCount) {
+        this(filePath, mode, false, compact, shard, shardCount, null);
+    }
+
+    private ContactRepository(String filePath, PersistenceMode mode, boolean binarySnapshot, boolean compact,
+                              int idOffset, int idStride, FlushPolicy flushPolicy) {
+        this.filePath = filePath;
+        this.binarySnapshot = binarySnapshot;
+        this.idOffset = idOffset;
+        this.idStride = idStride;
+        this.compactStore = compact ? new CompactContactStore() : null;
+        long start = Metrics.start();
         loadContacts();
+        openJournal(mode);
+        if (mode == PersistenceMode.WRITE_BEHIND) {
+            startWriteBehind(flushPolicy != null ? flushPolicy : FlushPolicy.fromSystemProperty());
+        }
+        LOAD_TIMER.stop(start);
     }
 
     /**
-     * Loads all contact records from the CSV file into memory.
-     * Each line is split into name, phone, and email. Only valid
-     * records with all three fields are considered.
+     * Loads all contact records from the CSV file into memory using the
+     * memory-mapped {@link CsvContactLoader}. Only valid records with all
+     * three fields are considered.
      */
     private void loadContacts() {
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] data = line.split(",");
-                if (data.length == 3) {
-                    contacts.add(new Contact(data[0], data[1], data[2]));
+        if (binarySnapshot && loadBinarySnapshot()) return;
+        try {
+            List<Contact> loaded = new ArrayList<>();
+            seq = CsvContactLoader.load(Paths.get(filePath), loaded);
+            if (Metrics.ENABLED) BYTES_READ.add(Files.size(Paths.get(filePath)));
+            storeLoaded(loaded);
+        } catch (IOException e) {
+            System.out.println("No saved contacts found.");
+        }
+    }
+
+    /**
+     * Loads the binary snapshot if it exists and is at least as new as the
+     * CSV file.
+     *
+     * @return true if the snapshot was loaded
+     */
+    private boolean loadBinarySnapshot() {
+        Path bin = binaryPath();
+        Path csv = Paths.get(filePath);
+        try {
+            if (!Files.exists(bin)) return false;
+            if (Files.exists(csv) && Files.getLastModifiedTime(bin).compareTo(Files.getLastModifiedTime(csv)) < 0) {
+                return false;
+            }
+            BinarySnapshot snapshot = BinarySnapshot.read(bin);
+            if (Metrics.ENABLED) BYTES_READ.add(Files.size(bin));
+            seq = snapshot.getSeq();
+            if (storeLoaded(snapshot.getContacts()) == 0) {
+                nameIndex = snapshot.getNameIndex();
+            }
+            return true;
+        } catch (IOException e) {
+            System.out.println("Could not read binary snapshot, loading CSV instead.");
+            return false;
+        }
+    }
+
+    /**
+     * Stores freshly loaded contacts, skipping rows whose name is already
+     * taken.
+     *
+     * @param loaded contacts in file order
+     * @return the number of duplicate rows skipped
+     */
+    private int storeLoaded(List<Contact> loaded) {
+        int skipped = 0;
+        for (Contact c : loaded) {
+            if (!register(c, false)) skipped++;
+        }
+        sorted.sort(Contact.NAME_ORDER);
+        if (skipped > 0) {
+            System.out.println("Skipped " + skipped + " contacts with duplicate names.");
+        }
+        return skipped;
+    }
+
+    /**
+     * Returns the path of the binary snapshot, next to the CSV file.
+     */
+    private Path binaryPath() {
+        String base = filePath.endsWith(".csv") ? filePath.substring(0, filePath.length() - 4) : filePath;
+        return Paths.get(base + ".bin");
+    }
+
+    /**
+     * Replays any write-ahead log left next to the CSV file and, in journal
+     * mode, keeps it open for appends. In the other modes a leftover log
+     * is folded into the CSV and removed. Falls back to rewrite mode if the
+     * log cannot be opened.
+     *
+     * @param mode how mutations are persisted
+     */
+    private void openJournal(PersistenceMode mode) {
+        ContactJournal log = new ContactJournal(Paths.get(filePath + ".log"), JOURNAL_GROUP_SIZE);
+        try {
+            long snapshotSeq = seq;
+            seq = log.replay(seq, this::applyLogRecord);
+            boolean recovered = seq > snapshotSeq || log.hasRotated();
+            if (seq > snapshotSeq) {
+                nameIndex = null;
+            }
+
+            if (mode != PersistenceMode.JOURNAL) {
+                if (recovered) {
+                    saveContacts();
+                    Files.deleteIfExists(Paths.get(filePath + ".log"));
+                    log.discardRotated();
                 }
+                return;
             }
+
+            if (log.hasRotated()) {
+                writeSnapshot(liveContacts(), seq);
+                log.discardRotated();
+            }
+            log.open();
         } catch (IOException e) {
-            System.out.println("No saved contacts found.");
+            System.out.println("Could not open contact journal, falling back to full rewrites.");
+            return;
+        }
+
+        journal = log;
+        journalWorker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "contact-journal");
+            t.setDaemon(true);
+            return t;
+        });
+        journalWorker.scheduleWithFixedDelay(this::syncJournal,
+                JOURNAL_SYNC_INTERVAL_MS, JOURNAL_SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        addShutdownHook("contact-journal-shutdown");
+    }
+
+    /**
+     * Starts the background writer of write-behind mode, flushed from a
+     * shutdown hook on exit.
+     *
+     * @param policy when pending mutations are written to disk
+     */
+    private void startWriteBehind(FlushPolicy policy) {
+        writeBehind = new WriteBehindWriter(policy, this::flushWriteBehind, "contact-write-behind");
+        addShutdownHook("contact-write-behind-shutdown");
+    }
+
+    /**
+     * Registers a shutdown hook that closes the repository in case its
+     * owner exits without calling {@link #close()}. Closing removes it.
+     *
+     * @param name name of the hook thread
+     */
+    private void addShutdownHook(String name) {
+        shutdownHook = new Thread(this::close, name);
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Applies a single replayed log record to the in-memory contacts.
+     *
+     * @param op      {@link ContactJournal#ADD} or {@link ContactJournal#DELETE}
+     * @param payload CSV line for adds, contact name for deletes
+     */
+    private void applyLogRecord(char op, String payload) {
+        if (op == ContactJournal.ADD) {
+            Contact contact = CsvContactLoader.parse(payload);
+            if (contact != null) {
+                store(contact);
+            }
+        } else if (op == ContactJournal.DELETE) {
+            remove(payload);
+        }
+    }
+
+    /**
+     * Stores a contact, keeping phone and email as secondary keys only if
+     * they are unused, and inserts it into the sorted list.
+     *
+     * @param contact the contact being stored
+     * @return false if the name is already taken
+     */
+    private boolean store(Contact contact) {
+        if (!register(contact, false)) return false;
+        insertSorted();
+        return true;
+    }
+
+    /**
+     * Assigns a contact the next slot in the ID table, registers it under
+     * its keys and appends it to the sorted list without ordering it.
+     * With compact storage, the stored contact is a view of a copy of the
+     * given one, which only receives the ID.
+     * Callers must restore the order of the sorted list.
+     *
+     * @param contact  the contact being stored
+     * @param unique   whether phone and email must also be unused
+     * @return false if the name (or, when {@code unique}, the phone or
+     *         email) is already taken
+     */
+    private boolean register(Contact contact, boolean unique) {
+        if (unique ? isTaken(contact, null) : byName.containsKey(contact.getName().toLowerCase())) return false;
+
+        contact.setId(slots.size() * idStride + idOffset);
+        Contact stored = compactStore == null ? contact : compactStore.add(contact);
+        slots.add(stored);
+        byName.putIfAbsent(stored);
+        byPhone.putIfAbsent(stored);
+        byEmail.putIfAbsent(stored);
+        sorted.add(stored);
+        sortedSnapshot = null;
+        return true;
+    }
+
+    /**
+     * Moves the contact just registered by {@link #register} from the end
+     * of the sorted list to its place in name order.
+     */
+    private void insertSorted() {
+        Contact contact = sorted.remove(sorted.size() - 1);
+        int pos = Collections.binarySearch(sorted, contact, Contact.NAME_ORDER);
+        sorted.add(pos < 0 ? -(pos + 1) : pos, contact);
+    }
+
+    /**
+     * Checks whether the contact's name, phone or email already belongs to
+     * a contact other than {@code except}.
+     *
+     * @param contact the contact to check
+     * @param except  a contact whose keys may be reused, or null
+     * @return true if any key is taken
+     */
+    private boolean isTaken(Contact contact, Contact except) {
+        Contact byNameOwner = byName.get(contact.getName().toLowerCase());
+        Contact byPhoneOwner = byPhone.get(contact.getPhone());
+        Contact byEmailOwner = byEmail.get(contact.getEmail().toLowerCase());
+        return (byNameOwner != null && byNameOwner != except)
+                || (byPhoneOwner != null && byPhoneOwner != except)
+                || (byEmailOwner != null && byEmailOwner != except);
+    }
+
+    /**
+     * Removes the contact with the given name (case-insensitive) from all
+     * keys and clears its slot in the ID table.
+     *
+     * @param name the name of the contact to remove
+     * @return the removed contact, or null if there was none
+     */
+    private Contact remove(String name) {
+        Contact removed = byName.get(name.toLowerCase());
+        if (removed != null) {
+            int pos = Collections.binarySearch(sorted, removed, Contact.NAME_ORDER);
+            sorted.remove(pos);
+            sortedSnapshot = null;
+            byName.remove(removed);
+            byPhone.remove(removed);
+            byEmail.remove(removed);
+            slots.set(removed.getId() / idStride, null);
+        }
+        return removed;
+    }
+
+    /**
+     * Returns an immutable snapshot of all contacts currently loaded in
+     * memory, sorted by name. The snapshot is copied once after a change
+     * and shared by all callers until the next one, so it is safe to
+     * iterate while writers run.
+     *
+     * @return sorted, unmodifiable list of contact objects
+     */
+    @Override
+    public synchronized List<Contact> getAllContacts() {
+        if (sortedSnapshot == null) {
+            sortedSnapshot = List.copyOf(sorted);
+        }
+        return sortedSnapshot;
+    }
+
+    /**
+     * Returns the number of contacts currently loaded in memory.
+     *
+     * @return number of contacts
+     */
+    @Override
+    public synchronized int size() {
+        return byName.size();
+    }
+
+    /**
+     * Returns the contacts accepted by the filter, in name order. Writers
+     * are blocked until the scan ends.
+     *
+     * @param filter the condition to test each contact against
+     * @return the matching contacts
+     */
+    @Override
+    public synchronized List<Contact> findAll(Predicate<? super Contact> filter) {
+        List<Contact> matches = new ArrayList<>();
+        for (Contact c : sorted) {
+            if (filter.test(c)) matches.add(c);
         }
+        return matches;
+    }
+
+    /**
+     * Looks up a contact by name (case-insensitive).
+     *
+     * @param name the contact name
+     * @return the contact, or null if there is none
+     */
+    @Override
+    public synchronized Contact getByName(String name) {
+        return byName.get(name.toLowerCase());
+    }
+
+    /**
+     * Looks up a contact by phone number.
+     *
+     * @param phone the phone number
+     * @return the contact, or null if there is none
+     */
+    public synchronized Contact getByPhone(String phone) {
+        return byPhone.get(phone);
+    }
+
+    /**
+     * Looks up a contact by email address (case-insensitive).
+     *
+     * @param email the email address
+     * @return the contact, or null if there is none
+     */
+    public synchronized Contact getByEmail(String email) {
+        return byEmail.get(email.toLowerCase());
     }
 
     /**
-     * Returns the list of all contacts currently loaded in memory.
+     * Returns the contact stored under the given ID.
      *
-     * @return list of contact objects
+     * @param id the contact ID
+     * @return the contact, or null if it has been deleted
      */
-    public List<Contact> getAllContacts() {
-        return contacts;
+    @Override
+    public synchronized Contact getById(int id) {
+        return slots.get(id / idStride);
     }
 
     /**
-     * Adds a new contact to the in-memory list and persists it to the file.
+     * Returns the name index loaded from the binary snapshot, or null if
+     * the contacts came from the CSV file or were changed by journal replay
+     * after the snapshot was taken. The caller takes ownership of the index.
+     *
+     * @return the prebuilt name index, or null
+     */
+    @Override
+    public Trie getNameIndex() {
+        return nameIndex;
+    }
+
+    /**
+     * Returns the path of the CSV file backing the repository.
+     */
+    @Override
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Returns how mutations are persisted, which is
+     * {@link PersistenceMode#REWRITE} if the journal could not be opened.
+     */
+    @Override
+    public PersistenceMode getPersistenceMode() {
+        if (journal != null) return PersistenceMode.JOURNAL;
+        return writeBehind != null ? PersistenceMode.WRITE_BEHIND : PersistenceMode.REWRITE;
+    }
+
+    /**
+     * With a write-behind {@link FlushPolicy#sync()} policy, waits until
+     * every mutation made so far is written to disk. Returns at once in
+     * any other mode, where mutations are persisted before they return.
+     */
+    @Override
+    public void awaitPersisted() {
+        if (writeBehind != null) writeBehind.awaitFlushed();
+    }
+
+    /**
+     * Adds a new contact, assigns its ID and persists it to the file.
+     * The contact is rejected if its name, phone or email is already taken.
      *
      * @param contact the contact to be added
+     * @return true if the contact was added; false if it is a duplicate
+     */
+    @Override
+    public synchronized boolean addContact(Contact contact) {
+        if (!register(contact, true)) return false;
+        insertSorted();
+        persist(ContactJournal.ADD, contact.toString());
+        return true;
+    }
+
+    /**
+     * Adds a batch of contacts and persists them once: a single CSV rewrite,
+     * one journal batch forced to disk together, or one write-behind flush. Contacts whose name,
+     * phone or email is already taken (including by an earlier contact in
+     * the same batch) are skipped.
+     *
+     * @param batch the contacts to add
+     * @return for each contact, whether it was added
      */
-    public void addContact(Contact contact) {
-        contacts.add(contact);
-        saveContacts();
+    @Override
+    public synchronized boolean[] addContacts(List<Contact> batch) {
+        boolean[] added = new boolean[batch.size()];
+        List<String> payloads = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            added[i] = register(batch.get(i), true);
+            if (added[i]) payloads.add(batch.get(i).toString());
+        }
+        if (payloads.isEmpty()) return added;
+        sorted.sort(Contact.NAME_ORDER);
+
+        if (writeBehind != null) {
+            writeBehind.mutated(payloads.size());
+        } else if (journal == null) {
+            saveContacts();
+        } else {
+            try {
+                journal.appendBatch(seq + 1, ContactJournal.ADD, payloads);
+                seq += payloads.size();
+            } catch (IOException e) {
+                System.out.println("Error writing contact journal.");
+            }
+        }
+        return added;
     }
 
     /**
-     * Deletes a contact from the list by matching the name (case-insensitive),
-     * then updates the CSV file to reflect the change.
+     * Streams all contacts to the given writer as CSV, one per line and in
+     * name order, without copying the contact list. Writers are blocked
+     * until the export ends.
+     *
+     * @param out destination of the CSV lines
+     * @return the number of contacts written
+     * @throws IOException if writing fails
+     */
+    @Override
+    public synchronized int exportContacts(Writer out) throws IOException {
+        for (Contact c : sorted) {
+            out.write(c.toString());
+            out.write(System.lineSeparator());
+        }
+        out.flush();
+        return byName.size();
+    }
+
+    /**
+     * Replaces the contact stored under {@code name} with {@code updated}.
+     * The update is rejected if the existing contact is missing or if the
+     * new name, phone or email belongs to another contact.
+     *
+     * @param name    the current name of the contact (case-insensitive)
+     * @param updated the new contact details
+     * @return the replaced contact, or null if the update was rejected
+     */
+    @Override
+    public synchronized Contact updateContact(String name, Contact updated) {
+        Contact existing = byName.get(name.toLowerCase());
+        if (existing == null || isTaken(updated, existing)) return null;
+
+        remove(existing.getName());
+        store(updated);
+        if (journal == null && writeBehind == null) {
+            saveContacts();
+        } else {
+            persist(ContactJournal.DELETE, existing.getName());
+            persist(ContactJournal.ADD, updated.toString());
+        }
+        return existing;
+    }
+
+    /**
+     * Deletes a contact by matching the name (case-insensitive),
+     * then persists the change.
      *
      * @param name the name of the contact to delete
+     * @return the deleted contact, or null if there was none
+     */
+    @Override
+    public synchronized Contact deleteContact(String name) {
+        Contact removed = remove(name);
+        if (removed != null) {
+            persist(ContactJournal.DELETE, name);
+        }
+        return removed;
+    }
+
+    /**
+     * Records a mutation as a journal append, as pending for the
+     * write-behind writer or, in rewrite mode, as a full rewrite of the
+     * CSV file.
+     *
+     * @param op      the journal operation
+     * @param payload the journal payload
+     */
+    private void persist(char op, String payload) {
+        if (writeBehind != null) {
+            writeBehind.mutated(1);
+            return;
+        }
+        if (journal == null) {
+            saveContacts();
+            return;
+        }
+        try {
+            journal.append(++seq, op, payload);
+        } catch (IOException e) {
+            System.out.println("Error writing contact journal.");
+        }
+    }
+
+    /**
+     * Forces pending journal records to disk and compacts the log once it
+     * has grown past the threshold. Runs on the journal worker thread.
+     */
+    private void syncJournal() {
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            System.out.println("Error syncing contact journal.");
+        }
+        if (journal.recordCount() >= COMPACTION_THRESHOLD) {
+            compact();
+        }
+    }
+
+    /**
+     * Folds the journal into a fresh CSV snapshot. The log is rotated under
+     * the repository lock so writers are only blocked for a list copy; the
+     * snapshot itself is written outside the lock.
+     */
+    public void compact() {
+        if (journal == null) return;
+
+        synchronized (compactionLock) {
+            List<Contact> snapshot;
+            long snapshotSeq;
+            synchronized (this) {
+                if (journal.recordCount() == 0) return;
+                snapshot = liveContacts();
+                snapshotSeq = seq;
+                try {
+                    journal.rotate();
+                } catch (IOException e) {
+                    System.out.println("Error rotating contact journal.");
+                    return;
+                }
+            }
+            try {
+                writeSnapshot(snapshot, snapshotSeq);
+                journal.discardRotated();
+            } catch (IOException e) {
+                System.out.println("Error compacting contact journal.");
+            }
+        }
+    }
+
+    /**
+     * Writes the pending write-behind mutations, or flushes the journal,
+     * stops the background worker and removes the shutdown hook. Also
+     * called from that hook if the owner exits without closing.
      */
-    public void deleteContact(String name) {
-        contacts.removeIf(c -> c.getName().equalsIgnoreCase(name));
-        saveContacts();
+    @Override
+    public void close() {
+        removeShutdownHook();
+        // the background workers take the repository lock, so they are stopped outside it
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+        if (journalWorker != null) {
+            journalWorker.shutdown();
+            try {
+                journalWorker.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (journal == null) return;
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.out.println("Error closing contact journal.");
+            }
+        }
+    }
+
+    /**
+     * Unregisters the shutdown hook, unless the JVM is already running it.
+     */
+    private void removeShutdownHook() {
+        Thread hook;
+        synchronized (this) {
+            hook = shutdownHook;
+            shutdownHook = null;
+        }
+        if (hook == null || hook == Thread.currentThread()) return;
+        try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException e) {
+            // shutting down; the hook is running or about to
+        }
+    }
+
+    /**
+     * Writes a snapshot for the write-behind writer. The contacts are
+     * copied under the repository lock, together with the count of
+     * mutations they reflect, and written outside it.
+     *
+     * @return the number of write-behind mutations the snapshot covers
+     * @throws IOException if the snapshot cannot be written
+     */
+    private long flushWriteBehind() throws IOException {
+        List<Contact> snapshot;
+        long snapshotSeq;
+        long covered;
+        synchronized (this) {
+            snapshot = liveContacts();
+            snapshotSeq = seq;
+            covered = writeBehind.requested();
+        }
+        writeSnapshot(snapshot, snapshotSeq);
+        return covered;
+    }
+
+    /**
+     * Returns the stored contacts in the order they were stored.
+     */
+    private List<Contact> liveContacts() {
+        List<Contact> live = new ArrayList<>(byName.size());
+        for (Contact c : slots) {
+            if (c != null) live.add(c);
+        }
+        return live;
     }
 
     /**
      * Saves all contacts from memory to the CSV file, one per line.
      */
     private void saveContacts() {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filePath))) {
-            for (Contact c : contacts) {
+        try {
+            writeSnapshot(liveContacts(), seq);
+        } catch (IOException e) {
+            System.out.println("Error saving contacts.");
+        }
+    }
+
+    /**
+     * Writes the given contacts to a temporary file, forces it to disk and
+     * atomically moves it over the CSV file, so a crash never leaves a
+     * truncated contact book behind. With binary snapshots enabled the
+     * binary file is refreshed as well.
+     *
+     * @param snapshot    contacts to write
+     * @param snapshotSeq last journal sequence covered by the snapshot
+     * @throws IOException if the snapshot cannot be written
+     */
+    private void writeSnapshot(Collection<Contact> snapshot, long snapshotSeq) throws IOException {
+        long start = Metrics.start();
+        Path target = Paths.get(filePath);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (FileOutputStream out = new FileOutputStream(tmp.toFile());
+             BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            if (snapshotSeq > 0) {
+                bw.write(SEQ_HEADER + snapshotSeq);
+                bw.newLine();
+            }
+            for (Contact c : snapshot) {
                 bw.write(c.toString());
                 bw.newLine();
             }
-        } catch (IOException e) {
-            System.out.println("Error saving contacts.");
+            bw.flush();
+            out.getFD().sync();
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (Metrics.ENABLED) BYTES_WRITTEN.add(Files.size(target));
+
+        if (binarySnapshot) {
+            BinarySnapshot.write(binaryPath(), snapshot, snapshotSeq);
+            if (Metrics.ENABLED) BYTES_WRITTEN.add(Files.size(binaryPath()));
         }
+        SAVE_TIMER.stop(start);
     }
 }
@@ -0,0 +1,151 @@
+package com.khan.fazal.intern.dao;
+
+import com.khan.fazal.intern.model.Contact;
+import com.khan.fazal.intern.utils.Trie;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Storage for the contact book, as used by the service layer.
+ *
+ * Implemented by {@link ContactRepository}, which keeps the whole book in
+ * one file, and by {@link ShardedContactRepository}, which spreads it over
+ * several repositories. Contacts are unique by case-folded name, phone and
+ * case-folded email, and each stored contact carries an ID that
+ * {@link #getById} resolves until the contact is deleted. The owner of a
+ * store closes it when done.
+ */
+public interface ContactStore extends AutoCloseable {
+
+    /**
+     * Opens the default contact book: a {@link ShardedContactRepository}
+     * when {@code -Dcontacts.shards} is set above 1, otherwise a single
+     * {@link ContactRepository}.
+     *
+     * @return the opened store
+     */
+    static ContactStore open() {
+        int shards = Integer.getInteger("contacts.shards", 1);
+        return shards > 1 ? new ShardedContactRepository(shards) : new ContactRepository();
+    }
+
+    /**
+     * Returns all contacts sorted by {@link Contact#NAME_ORDER}, as a
+     * snapshot that later changes do not affect.
+     *
+     * @return sorted, unmodifiable list of contacts
+     */
+    List<Contact> getAllContacts();
+
+    /**
+     * Returns the contacts accepted by the filter, in name order.
+     *
+     * @param filter the condition to test each contact against
+     * @return the matching contacts
+     */
+    List<Contact> findAll(Predicate<? super Contact> filter);
+
+    /**
+     * Returns the number of contacts.
+     *
+     * @return number of contacts
+     */
+    int size();
+
+    /**
+     * Looks up a contact by name (case-insensitive).
+     *
+     * @param name the contact name
+     * @return the contact, or null if there is none
+     */
+    Contact getByName(String name);
+
+    /**
+     * Returns the contact stored under the given ID.
+     *
+     * @param id the contact ID
+     * @return the contact, or null if it has been deleted
+     */
+    Contact getById(int id);
+
+    /**
+     * Returns a prebuilt name index over the contact IDs, or null if there
+     * is none. The caller takes ownership of the index.
+     *
+     * @return the prebuilt name index, or null
+     */
+    Trie getNameIndex();
+
+    /**
+     * Adds a new contact, assigns its ID and persists it. The contact is
+     * rejected if its name, phone or email is already taken.
+     *
+     * @param contact the contact to be added
+     * @return true if the contact was added; false if it is a duplicate
+     */
+    boolean addContact(Contact contact);
+
+    /**
+     * Adds a batch of contacts, skipping those whose name, phone or email
+     * is already taken, including by an earlier contact in the batch.
+     *
+     * @param batch the contacts to add
+     * @return for each contact, whether it was added
+     */
+    boolean[] addContacts(List<Contact> batch);
+
+    /**
+     * Replaces the contact stored under {@code name} with {@code updated}.
+     *
+     * @param name    the current name of the contact (case-insensitive)
+     * @param updated the new contact details
+     * @return the replaced contact, or null if it is missing or the new
+     *         details clash with another contact
+     */
+    Contact updateContact(String name, Contact updated);
+
+    /**
+     * Deletes a contact by name (case-insensitive).
+     *
+     * @param name the name of the contact to delete
+     * @return the deleted contact, or null if there was none
+     */
+    Contact deleteContact(String name);
+
+    /**
+     * Writes all contacts as CSV lines in name order.
+     *
+     * @param out destination of the CSV lines
+     * @return the number of contacts written
+     * @throws IOException if writing fails
+     */
+    int exportContacts(Writer out) throws IOException;
+
+    /**
+     * Returns the path of the CSV file backing the store.
+     */
+    String getFilePath();
+
+    /**
+     * Returns how mutations are persisted.
+     */
+    PersistenceMode getPersistenceMode();
+
+    /**
+     * Waits until the mutations made so far are on disk, where the store
+     * is configured to let writers wait for that; see
+     * {@link FlushPolicy#sync()}. Callers holding locks of their own
+     * release them first, so concurrent writers share one flush.
+     */
+    default void awaitPersisted() {
+    }
+
+    /**
+     * Persists anything still pending and stops background work. The
+     * store must not be used afterwards.
+     */
+    @Override
+    void close();
+}
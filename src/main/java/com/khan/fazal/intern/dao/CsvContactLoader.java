@@ -0,0 +1,201 @@
+package com.khan.fazal.intern.dao;
+
+import com.khan.fazal.intern.model.Contact;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads contact records from a CSV file by memory-mapping it and scanning
+ * the bytes for commas and newlines directly, so no per-line {@code String}
+ * or split array is created before the {@link Contact} itself.
+ *
+ * The file is processed in newline-aligned chunks. Large files can have
+ * their chunks parsed in parallel on the common fork-join pool; the
+ * results are concatenated in file order.
+ */
+public class CsvContactLoader {
+    private static final String SEQ_HEADER = "#seq=";
+    private static final int CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final long PARALLEL_THRESHOLD = 2L * CHUNK_SIZE;
+
+    /**
+     * Holds the contacts parsed from one chunk and, for the first chunk,
+     * the sequence number found in a {@code #seq=} header line.
+     */
+    private record Chunk(List<Contact> contacts, long seq) {}
+
+    /**
+     * Loads all valid records from the file, parsing in parallel if the
+     * file is large enough to benefit from it.
+     *
+     * @param path     the CSV file
+     * @param contacts list the parsed contacts are appended to, in file order
+     * @return the sequence number from the {@code #seq=} header, or 0 if absent
+     * @throws IOException if the file cannot be mapped
+     */
+    public static long load(Path path, List<Contact> contacts) throws IOException {
+        return load(path, contacts, true);
+    }
+
+    /**
+     * Loads all valid records from the file.
+     *
+     * @param path     the CSV file
+     * @param contacts list the parsed contacts are appended to, in file order
+     * @param parallel whether large files may be parsed on the fork-join pool
+     * @return the sequence number from the {@code #seq=} header, or 0 if absent
+     * @throws IOException if the file cannot be mapped
+     */
+    public static long load(Path path, List<Contact> contacts, boolean parallel) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<long[]> bounds = chunkBounds(channel, size);
+
+            List<Chunk> chunks;
+            if (parallel && size >= PARALLEL_THRESHOLD) {
+                chunks = bounds.parallelStream().map(b -> parseChunk(channel, b[0], b[1])).toList();
+            } else {
+                chunks = new ArrayList<>(bounds.size());
+                for (long[] b : bounds) {
+                    chunks.add(parseChunk(channel, b[0], b[1]));
+                }
+            }
+
+            for (Chunk chunk : chunks) {
+                contacts.addAll(chunk.contacts());
+            }
+            return chunks.isEmpty() ? 0 : chunks.get(0).seq();
+        }
+    }
+
+    /**
+     * Parses a single CSV line into a contact.
+     *
+     * @param line a line of the form {@code name,phone,email}
+     * @return the contact, or null if the line does not have exactly three fields
+     */
+    public static Contact parse(String line) {
+        int first = line.indexOf(',');
+        int second = first < 0 ? -1 : line.indexOf(',', first + 1);
+        if (second < 0 || second == line.length() - 1 || line.indexOf(',', second + 1) >= 0) {
+            return null;
+        }
+        return new Contact(line.substring(0, first), line.substring(first + 1, second), line.substring(second + 1));
+    }
+
+    /**
+     * Splits the file into ranges of roughly {@link #CHUNK_SIZE} bytes,
+     * each extended to end just after a newline.
+     */
+    private static List<long[]> chunkBounds(FileChannel channel, long size) throws IOException {
+        List<long[]> bounds = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long start = 0;
+
+        while (start < size) {
+            long end = Math.min(start + CHUNK_SIZE, size);
+            while (end < size) {
+                probe.clear();
+                int read = channel.read(probe, end);
+                int nl = -1;
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        nl = i;
+                        break;
+                    }
+                }
+                if (nl >= 0) {
+                    end += nl + 1;
+                    break;
+                }
+                end = Math.min(end + read, size);
+            }
+            bounds.add(new long[]{start, end});
+            start = end;
+        }
+        return bounds;
+    }
+
+    /**
+     * Maps and parses the byte range {@code [start, end)}, which starts at
+     * the beginning of a line.
+     */
+    private static Chunk parseChunk(FileChannel channel, long start, long end) {
+        MappedByteBuffer buf;
+        try {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not map contacts file", e);
+        }
+
+        List<Contact> contacts = new ArrayList<>();
+        long seq = 0;
+        byte[] line = new byte[256];
+        int limit = buf.limit();
+        int lineStart = 0;
+
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit && buf.get(i) != '\n') continue;
+
+            int lineEnd = i;
+            if (lineEnd > lineStart && buf.get(lineEnd - 1) == '\r') lineEnd--;
+            int len = lineEnd - lineStart;
+
+            if (len > 0) {
+                if (len > line.length) line = new byte[Math.max(len, line.length * 2)];
+                buf.get(lineStart, line, 0, len);
+
+                if (start == 0 && lineStart == 0 && startsWith(line, len, SEQ_HEADER)) {
+                    String value = new String(line, SEQ_HEADER.length(), len - SEQ_HEADER.length(),
+                            StandardCharsets.US_ASCII);
+                    seq = Long.parseLong(value.trim());
+                } else {
+                    Contact contact = parse(line, len);
+                    if (contact != null) contacts.add(contact);
+                }
+            }
+            lineStart = i + 1;
+        }
+        return new Chunk(contacts, seq);
+    }
+
+    /**
+     * Builds a contact from the first {@code len} bytes of {@code line},
+     * or returns null if they do not hold exactly three fields.
+     */
+    private static Contact parse(byte[] line, int len) {
+        int first = -1;
+        int second = -1;
+        for (int i = 0; i < len; i++) {
+            if (line[i] != ',') continue;
+            if (first < 0) {
+                first = i;
+            } else if (second < 0) {
+                second = i;
+            } else {
+                return null;
+            }
+        }
+        if (second < 0 || second == len - 1) return null;
+
+        return new Contact(
+                new String(line, 0, first, StandardCharsets.UTF_8),
+                new String(line, first + 1, second - first - 1, StandardCharsets.UTF_8),
+                new String(line, second + 1, len - second - 1, StandardCharsets.UTF_8));
+    }
+
+    private static boolean startsWith(byte[] line, int len, String prefix) {
+        if (len < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (line[i] != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+}
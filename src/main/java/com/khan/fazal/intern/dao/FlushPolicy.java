@@ -0,0 +1,81 @@
+package com.khan.fazal.intern.dao;
+
+/**
+ * When a repository in {@link PersistenceMode#WRITE_BEHIND} mode writes
+ * its pending mutations to disk. Whichever trigger fires first starts a
+ * flush, and one flush covers every mutation pending at that point.
+ *
+ * @param maxPending flush once this many mutations are pending; 0 for no limit
+ * @param maxDelayMs flush once the oldest pending mutation is this many
+ *                   milliseconds old; 0 for no limit
+ * @param sync       flush as soon as anything is pending, and make
+ *                   {@link ContactStore#awaitPersisted()} wait for it
+ */
+public record FlushPolicy(int maxPending, long maxDelayMs, boolean sync) {
+
+    /**
+     * Flushes half a second after the first pending mutation.
+     */
+    public static final FlushPolicy DEFAULT = new FlushPolicy(0, 500, false);
+
+    /**
+     * Validates the settings.
+     *
+     * @throws IllegalArgumentException if a limit is negative or nothing
+     *                                  would ever trigger a flush
+     */
+    public FlushPolicy {
+        if (maxPending < 0 || maxDelayMs < 0) {
+            throw new IllegalArgumentException("Flush limits must not be negative");
+        }
+        if (!sync && maxPending == 0 && maxDelayMs == 0) {
+            throw new IllegalArgumentException("A flush policy needs sync, a count or a delay");
+        }
+    }
+
+    /**
+     * Parses a comma-separated list of triggers: {@code sync},
+     * {@code every:<count>} and {@code <millis>ms}, such as
+     * {@code every:100,250ms}.
+     *
+     * @param spec the triggers
+     * @return the policy
+     * @throws IllegalArgumentException if the list cannot be parsed
+     */
+    public static FlushPolicy parse(String spec) {
+        int maxPending = 0;
+        long maxDelayMs = 0;
+        boolean sync = false;
+        for (String part : spec.split(",")) {
+            String trigger = part.trim().toLowerCase();
+            if (trigger.equals("sync")) {
+                sync = true;
+            } else if (trigger.startsWith("every:")) {
+                maxPending = Integer.parseInt(trigger.substring("every:".length()));
+            } else if (trigger.endsWith("ms")) {
+                maxDelayMs = Long.parseLong(trigger.substring(0, trigger.length() - 2));
+            } else {
+                throw new IllegalArgumentException("Unknown flush trigger: " + part);
+            }
+        }
+        return new FlushPolicy(maxPending, maxDelayMs, sync);
+    }
+
+    /**
+     * Resolves the policy from the {@code contacts.flush} system property
+     * (e.g. {@code -Dcontacts.flush=every:100,250ms}). Defaults to
+     * {@link #DEFAULT}.
+     *
+     * @return the configured flush policy
+     */
+    public static FlushPolicy fromSystemProperty() {
+        String value = System.getProperty("contacts.flush");
+        if (value == null) return DEFAULT;
+        try {
+            return parse(value);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Unknown flush policy '" + value + "', flushing every 500 ms.");
+            return DEFAULT;
+        }
+    }
+}
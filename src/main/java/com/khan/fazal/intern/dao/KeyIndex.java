@@ -0,0 +1,147 @@
+package com.khan.fazal.intern.dao;
+
+import com.khan.fazal.intern.model.Contact;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Unique-key lookup from a derived string key (such as the case-folded
+ * name) to a stored contact, without keeping the key strings.
+ *
+ * An open-addressing table with linear probing holds contact IDs and the
+ * hash of each key. Keys are derived again from the contact on a hash
+ * match, so the index costs two ints per slot instead of a map entry and
+ * a key string per contact. Removed entries leave tombstones that are
+ * dropped when the table is rebuilt.
+ */
+class KeyIndex {
+    private static final int EMPTY = 0;
+    private static final int REMOVED = -1;
+
+    private final Function<Contact, String> keyOf;
+    private final IntFunction<Contact> byId;
+    private int[] table = new int[16];
+    private int[] hashes = new int[16];
+    private int size;
+    private int used;
+
+    /**
+     * Creates an index.
+     *
+     * @param keyOf derives the key of a contact
+     * @param byId  resolves the ID of a stored contact
+     */
+    KeyIndex(Function<Contact, String> keyOf, IntFunction<Contact> byId) {
+        this.keyOf = keyOf;
+        this.byId = byId;
+    }
+
+    /**
+     * Returns the contact with the given key, or null.
+     *
+     * @param key a key as derived by this index's key function
+     */
+    Contact get(String key) {
+        int hash = hash(key);
+        int mask = table.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int entry = table[i];
+            if (entry == EMPTY) return null;
+            if (entry != REMOVED && hashes[i] == hash) {
+                Contact c = byId.apply(entry - 1);
+                if (keyOf.apply(c).equals(key)) return c;
+            }
+        }
+    }
+
+    /**
+     * Tells whether a contact is indexed under the given key.
+     */
+    boolean containsKey(String key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Indexes a stored contact under its key unless the key is already
+     * taken.
+     *
+     * @param c a stored contact
+     * @return false if another contact holds the key
+     */
+    boolean putIfAbsent(Contact c) {
+        String key = keyOf.apply(c);
+        int hash = hash(key);
+        int mask = table.length - 1;
+        int free = -1;
+        int i = hash & mask;
+        for (; table[i] != EMPTY; i = (i + 1) & mask) {
+            int entry = table[i];
+            if (entry == REMOVED) {
+                if (free < 0) free = i;
+            } else if (hashes[i] == hash && keyOf.apply(byId.apply(entry - 1)).equals(key)) {
+                return false;
+            }
+        }
+        if (free < 0) {
+            free = i;
+            used++;
+        }
+        table[free] = c.getId() + 1;
+        hashes[free] = hash;
+        size++;
+        if (used * 4 > table.length * 3) rebuild();
+        return true;
+    }
+
+    /**
+     * Removes the contact from the index if it is the one holding its key.
+     *
+     * @param c a contact that is still stored
+     */
+    void remove(Contact c) {
+        int hash = hash(keyOf.apply(c));
+        int target = c.getId() + 1;
+        int mask = table.length - 1;
+        for (int i = hash & mask; table[i] != EMPTY; i = (i + 1) & mask) {
+            if (table[i] == target) {
+                table[i] = REMOVED;
+                size--;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of indexed contacts.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Rehashes the live entries into a table sized for them, dropping
+     * tombstones.
+     */
+    private void rebuild() {
+        int capacity = Integer.highestOneBit(Math.max(16, size * 2) - 1) << 1;
+        int[] oldTable = table;
+        int[] oldHashes = hashes;
+        table = new int[capacity];
+        hashes = new int[capacity];
+        used = size;
+        int mask = capacity - 1;
+        for (int j = 0; j < oldTable.length; j++) {
+            int entry = oldTable[j];
+            if (entry == EMPTY || entry == REMOVED) continue;
+            int i = oldHashes[j] & mask;
+            while (table[i] != EMPTY) i = (i + 1) & mask;
+            table[i] = entry;
+            hashes[i] = oldHashes[j];
+        }
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,40 @@
+package com.khan.fazal.intern.dao;
+
+/**
+ * Selects how the {@link ContactRepository} persists mutations to disk.
+ */
+public enum PersistenceMode {
+
+    /**
+     * Rewrites the whole CSV file after every add or delete.
+     */
+    REWRITE,
+
+    /**
+     * Appends each mutation to a write-ahead log that is compacted
+     * into the CSV file in the background.
+     */
+    JOURNAL,
+
+    /**
+     * Applies mutations in memory only and rewrites the CSV file in the
+     * background, once per burst, as configured by {@link FlushPolicy}.
+     */
+    WRITE_BEHIND;
+
+    /**
+     * Resolves the mode from the {@code contacts.persistence} system property
+     * (e.g. {@code -Dcontacts.persistence=write-behind}). Defaults to {@link #JOURNAL}.
+     *
+     * @return the configured persistence mode
+     */
+    public static PersistenceMode fromSystemProperty() {
+        String value = System.getProperty("contacts.persistence", "journal");
+        try {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Unknown persistence mode '" + value + "', using journal.");
+            return JOURNAL;
+        }
+    }
+}
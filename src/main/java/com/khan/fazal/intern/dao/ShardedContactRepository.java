@@ -0,0 +1,470 @@
+package com.khan.fazal.intern.dao;
+
+import com.khan.fazal.intern.model.Contact;
+import com.khan.fazal.intern.utils.Trie;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A contact book split over several {@link ContactRepository} shards by
+ * the hash of the case-folded name.
+ *
+ * Each shard has its own CSV file and journal, key indexes and sorted
+ * list. Shards are loaded in parallel, a batch of contacts is split by
+ * shard and each part is stored and persisted concurrently, and scans run
+ * on all shards at once. Name-ordered results are k-way merged from the
+ * shards' sorted lists. Writers are serialized on this repository.
+ *
+ * Names are unique within their shard by construction. Phones and emails
+ * stay unique across the whole book: they are checked against every shard
+ * before a write is routed to its shard. Contact IDs come from the shards,
+ * which step them by the shard count, so an ID names its shard.
+ *
+ * Shard files are named after the book's CSV file with the shard number
+ * and count before the extension, e.g. {@code contacts.2-of-4.csv}. If no
+ * shard file of the configured count exists yet, the unsharded file or
+ * the shard files of a different count are redistributed into the new
+ * shards on open, and are then renamed with a {@code .bak} suffix.
+ */
+public class ShardedContactRepository implements ContactStore {
+    private static final Pattern SHARD_FILE = Pattern.compile("\\.(\\d+)-of-(\\d+)$");
+
+    private final String filePath;
+    private final ContactRepository[] shards;
+
+    /**
+     * Creates a sharded repository over the default contact book, using
+     * the persistence mode configured through
+     * {@link PersistenceMode#fromSystemProperty()}. Compact storage is
+     * enabled with {@code -Dcontacts.storage=compact}.
+     *
+     * @param shardCount the number of shards
+     */
+    public ShardedContactRepository(int shardCount) {
+        this(ContactRepository.DEFAULT_FILE_PATH, shardCount, PersistenceMode.fromSystemProperty(),
+                "compact".equalsIgnoreCase(System.getProperty("contacts.storage")));
+    }
+
+    /**
+     * Creates a sharded repository for the given CSV file.
+     *
+     * @param filePath   path of the unsharded CSV file the shard files are named after
+     * @param shardCount the number of shards
+     * @param mode       how each shard persists mutations
+     */
+    public ShardedContactRepository(String filePath, int shardCount, PersistenceMode mode) {
+        this(filePath, shardCount, mode, false);
+    }
+
+    /**
+     * Creates a sharded repository for the given CSV file.
+     *
+     * @param filePath   path of the unsharded CSV file the shard files are named after
+     * @param shardCount the number of shards
+     * @param mode       how each shard persists mutations
+     * @param compact    whether shards keep contact fields in a {@link CompactContactStore}
+     */
+    public ShardedContactRepository(String filePath, int shardCount, PersistenceMode mode, boolean compact) {
+        if (shardCount < 1) throw new IllegalArgumentException("shardCount must be positive: " + shardCount);
+        this.filePath = filePath;
+        try {
+            reshard(filePath, shardCount);
+        } catch (IOException e) {
+            System.out.println("Could not redistribute contacts into " + shardCount + " shards.");
+        }
+        this.shards = IntStream.range(0, shardCount).parallel()
+                .mapToObj(i -> new ContactRepository(shardPath(filePath, i, shardCount), mode, compact, i, shardCount))
+                .toArray(ContactRepository[]::new);
+    }
+
+    /**
+     * Returns the path of a shard's CSV file.
+     *
+     * @param filePath   path of the unsharded CSV file
+     * @param shard      the shard number
+     * @param shardCount the number of shards
+     * @return the shard's CSV path
+     */
+    static String shardPath(String filePath, int shard, int shardCount) {
+        Path path = Paths.get(filePath);
+        String file = path.getFileName().toString();
+        int dot = file.lastIndexOf('.');
+        String stem = dot < 0 ? file : file.substring(0, dot);
+        String ext = dot < 0 ? "" : file.substring(dot);
+        return path.resolveSibling(stem + "." + shard + "-of-" + shardCount + ext).toString();
+    }
+
+    /**
+     * Returns the shard a name belongs to.
+     *
+     * @param name       the contact name (any case)
+     * @param shardCount the number of shards
+     * @return the shard number
+     */
+    static int shardOf(String name, int shardCount) {
+        int h = name.toLowerCase().hashCode();
+        return Math.floorMod(h ^ (h >>> 16), shardCount);
+    }
+
+    /**
+     * Redistributes an existing book into {@code shardCount} shard files,
+     * unless shard files of that count already exist. The source is the
+     * shard files of another count if there are any, otherwise the
+     * unsharded file. Each source is loaded with its journal replayed, the
+     * new shard files are written, and the sources are renamed to
+     * {@code .bak}.
+     */
+    private static void reshard(String filePath, int shardCount) throws IOException {
+        for (int i = 0; i < shardCount; i++) {
+            if (Files.exists(Paths.get(shardPath(filePath, i, shardCount)))) return;
+        }
+
+        List<Path> sources = otherShardFiles(filePath, shardCount);
+        if (sources.isEmpty()) {
+            Path base = Paths.get(filePath);
+            if (!Files.exists(base) && !Files.exists(Paths.get(filePath + ".log"))) return;
+            sources = List.of(base);
+        }
+
+        List<List<String>> lines = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            lines.add(new ArrayList<>());
+        }
+        int count = 0;
+        for (Path source : sources) {
+            try (ContactRepository repository = new ContactRepository(source.toString(), PersistenceMode.REWRITE)) {
+                for (Contact c : repository.getAllContacts()) {
+                    lines.get(shardOf(c.getName(), shardCount)).add(c.toString());
+                    count++;
+                }
+            }
+        }
+
+        List<Path> written = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            Path target = Paths.get(shardPath(filePath, i, shardCount));
+            Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.write(tmp, lines.get(i), StandardCharsets.UTF_8);
+            written.add(tmp);
+        }
+        for (int i = 0; i < shardCount; i++) {
+            Files.move(written.get(i), Paths.get(shardPath(filePath, i, shardCount)),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        for (Path source : sources) {
+            if (Files.exists(source)) {
+                Files.move(source, source.resolveSibling(source.getFileName() + ".bak"),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        System.out.println("Redistributed " + count + " contacts into " + shardCount + " shards.");
+    }
+
+    /**
+     * Lists the shard CSV files of the book that belong to a shard count
+     * other than the given one, including shards that so far only have a
+     * journal.
+     */
+    private static List<Path> otherShardFiles(String filePath, int shardCount) throws IOException {
+        Path path = Paths.get(filePath).toAbsolutePath();
+        String file = path.getFileName().toString();
+        int dot = file.lastIndexOf('.');
+        String stem = dot < 0 ? file : file.substring(0, dot);
+        String ext = dot < 0 ? "" : file.substring(dot);
+        if (!Files.isDirectory(path.getParent())) return List.of();
+
+        try (Stream<Path> files = Files.list(path.getParent())) {
+            return files.map(p -> {
+                String name = p.getFileName().toString();
+                return p.resolveSibling(name.endsWith(ext + ".log") ? name.substring(0, name.length() - 4) : name);
+            }).filter(p -> {
+                String name = p.getFileName().toString();
+                if (!name.startsWith(stem + ".") || !name.endsWith(ext)) return false;
+                Matcher m = SHARD_FILE.matcher(name.substring(stem.length(), name.length() - ext.length()));
+                return m.matches() && Integer.parseInt(m.group(2)) != shardCount;
+            }).distinct().sorted().toList();
+        }
+    }
+
+    /**
+     * Returns the shards, in shard number order.
+     *
+     * @return unmodifiable list of the shard repositories
+     */
+    public List<ContactRepository> getShards() {
+        return List.of(shards);
+    }
+
+    private ContactRepository shardFor(String name) {
+        return shards[shardOf(name, shards.length)];
+    }
+
+    /**
+     * Returns all contacts sorted by name, merged from the shards into a
+     * fresh list.
+     *
+     * @return sorted, unmodifiable list of contacts
+     */
+    @Override
+    public synchronized List<Contact> getAllContacts() {
+        List<Contact> all = new ArrayList<>(size());
+        merge(Stream.of(shards).map(ContactRepository::getAllContacts).toList()).forEachRemaining(all::add);
+        return Collections.unmodifiableList(all);
+    }
+
+    /**
+     * Scans all shards in parallel and merges the matches in name order.
+     *
+     * @param filter the condition to test each contact against
+     * @return the matching contacts
+     */
+    @Override
+    public synchronized List<Contact> findAll(Predicate<? super Contact> filter) {
+        List<List<Contact>> parts = Stream.of(shards).parallel().map(s -> s.findAll(filter)).toList();
+        List<Contact> matches = new ArrayList<>();
+        merge(parts).forEachRemaining(matches::add);
+        return matches;
+    }
+
+    @Override
+    public synchronized int size() {
+        int size = 0;
+        for (ContactRepository shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public Contact getByName(String name) {
+        return shardFor(name).getByName(name);
+    }
+
+    /**
+     * Looks up a contact by phone number in every shard.
+     *
+     * @param phone the phone number
+     * @return the contact, or null if there is none
+     */
+    public synchronized Contact getByPhone(String phone) {
+        for (ContactRepository shard : shards) {
+            Contact c = shard.getByPhone(phone);
+            if (c != null) return c;
+        }
+        return null;
+    }
+
+    /**
+     * Looks up a contact by email address (case-insensitive) in every shard.
+     *
+     * @param email the email address
+     * @return the contact, or null if there is none
+     */
+    public synchronized Contact getByEmail(String email) {
+        for (ContactRepository shard : shards) {
+            Contact c = shard.getByEmail(email);
+            if (c != null) return c;
+        }
+        return null;
+    }
+
+    @Override
+    public Contact getById(int id) {
+        return shards[id % shards.length].getById(id);
+    }
+
+    /**
+     * Returns null: shards do not keep binary snapshots, so there is no
+     * prebuilt name index.
+     */
+    @Override
+    public Trie getNameIndex() {
+        return null;
+    }
+
+    @Override
+    public synchronized boolean addContact(Contact contact) {
+        if (isTaken(contact, null)) return false;
+        return shardFor(contact.getName()).addContact(contact);
+    }
+
+    /**
+     * Adds a batch of contacts. Keys are checked against all shards and the
+     * rest of the batch first; the accepted contacts are then split by
+     * shard and each part is stored and persisted on its own thread.
+     *
+     * @param batch the contacts to add
+     * @return for each contact, whether it was added
+     */
+    @Override
+    public synchronized boolean[] addContacts(List<Contact> batch) {
+        List<List<Contact>> parts = new ArrayList<>();
+        List<List<Integer>> positions = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            parts.add(new ArrayList<>());
+            positions.add(new ArrayList<>());
+        }
+
+        Set<String> names = new HashSet<>();
+        Set<String> phones = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Contact c = batch.get(i);
+            String name = c.getName().toLowerCase();
+            String email = c.getEmail().toLowerCase();
+            if (names.contains(name) || phones.contains(c.getPhone()) || emails.contains(email)
+                    || isTaken(c, null)) {
+                continue;
+            }
+            names.add(name);
+            phones.add(c.getPhone());
+            emails.add(email);
+            int shard = shardOf(name, shards.length);
+            parts.get(shard).add(c);
+            positions.get(shard).add(i);
+        }
+
+        boolean[] added = new boolean[batch.size()];
+        IntStream.range(0, shards.length).parallel().forEach(s -> {
+            if (parts.get(s).isEmpty()) return;
+            boolean[] stored = shards[s].addContacts(parts.get(s));
+            for (int j = 0; j < stored.length; j++) {
+                added[positions.get(s).get(j)] = stored[j];
+            }
+        });
+        return added;
+    }
+
+    /**
+     * Replaces a contact. If the new name belongs to another shard, the
+     * contact is added to the new shard first and deleted from its old
+     * shard only once the add succeeded. The two shards persist
+     * separately, so a crash between them leaves both the old and the new
+     * record on disk rather than neither.
+     *
+     * @param name    the current name of the contact (case-insensitive)
+     * @param updated the new contact details
+     * @return the replaced contact, or null if the update was rejected
+     */
+    @Override
+    public synchronized Contact updateContact(String name, Contact updated) {
+        ContactRepository from = shardFor(name);
+        Contact existing = from.getByName(name);
+        if (existing == null || isTaken(updated, existing)) return null;
+
+        ContactRepository to = shardFor(updated.getName());
+        if (to == from) return from.updateContact(name, updated);
+        if (!to.addContact(updated)) return null;
+        from.deleteContact(name);
+        return existing;
+    }
+
+    @Override
+    public synchronized Contact deleteContact(String name) {
+        return shardFor(name).deleteContact(name);
+    }
+
+    /**
+     * Streams all contacts as CSV lines, merging the shards in name order.
+     *
+     * @param out destination of the CSV lines
+     * @return the number of contacts written
+     * @throws IOException if writing fails
+     */
+    @Override
+    public synchronized int exportContacts(Writer out) throws IOException {
+        int count = 0;
+        Iterator<Contact> merged = merge(Stream.of(shards).map(ContactRepository::getAllContacts).toList());
+        while (merged.hasNext()) {
+            out.write(merged.next().toString());
+            out.write(System.lineSeparator());
+            count++;
+        }
+        out.flush();
+        return count;
+    }
+
+    /**
+     * Returns the path of the unsharded CSV file the shard files are named
+     * after.
+     */
+    @Override
+    public String getFilePath() {
+        return filePath;
+    }
+
+    @Override
+    public PersistenceMode getPersistenceMode() {
+        return shards[0].getPersistenceMode();
+    }
+
+    @Override
+    public void awaitPersisted() {
+        for (ContactRepository shard : shards) {
+            shard.awaitPersisted();
+        }
+    }
+
+    /**
+     * Closes every shard.
+     */
+    @Override
+    public void close() {
+        for (ContactRepository shard : shards) {
+            shard.close();
+        }
+    }
+
+    /**
+     * Checks whether the contact's name, phone or email already belongs to
+     * a contact other than {@code except}, in any shard.
+     */
+    private boolean isTaken(Contact contact, Contact except) {
+        Contact byName = getByName(contact.getName());
+        Contact byPhone = getByPhone(contact.getPhone());
+        Contact byEmail = getByEmail(contact.getEmail());
+        return (byName != null && byName != except)
+                || (byPhone != null && byPhone != except)
+                || (byEmail != null && byEmail != except);
+    }
+
+    /**
+     * Merges name-ordered lists into one name-ordered sequence, keeping the
+     * head of each list in a heap.
+     *
+     * @param lists lists sorted by {@link Contact#NAME_ORDER}
+     * @return an iterator over all their contacts in name order
+     */
+    static Iterator<Contact> merge(List<List<Contact>> lists) {
+        int[] next = new int[lists.size()];
+        PriorityQueue<Integer> heads = new PriorityQueue<>(Math.max(1, lists.size()),
+                (a, b) -> Contact.NAME_ORDER.compare(lists.get(a).get(next[a]), lists.get(b).get(next[b])));
+        for (int i = 0; i < lists.size(); i++) {
+            if (!lists.get(i).isEmpty()) heads.add(i);
+        }
+
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Contact next() {
+                Integer list = heads.poll();
+                if (list == null) throw new NoSuchElementException();
+                Contact c = lists.get(list).get(next[list]++);
+                if (next[list] < lists.get(list).size()) heads.add(list);
+                return c;
+            }
+        };
+    }
+}
@@ -0,0 +1,203 @@
+package com.khan.fazal.intern.dao;
+
+import com.khan.fazal.intern.utils.Metrics;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background writer of a repository in {@link PersistenceMode#WRITE_BEHIND}
+ * mode.
+ *
+ * The repository applies each mutation in memory and only counts it here.
+ * A single writer thread waits until the {@link FlushPolicy} says the
+ * pending mutations are due, then has the repository write one snapshot
+ * covering all of them, so a burst of mutations costs one rewrite. While
+ * a flush runs, new mutations keep accumulating for the next one. A
+ * failed flush is retried after a second; closing the writer flushes
+ * whatever is still pending.
+ *
+ * Mutations are counted as {@code writeBehind.mutations} and completed
+ * flushes as {@code writeBehind.flushes}, see {@link Metrics}.
+ */
+class WriteBehindWriter implements Closeable {
+    private static final long RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final Metrics.Counter MUTATIONS = Metrics.counter("writeBehind.mutations");
+    private static final Metrics.Counter FLUSHES = Metrics.counter("writeBehind.flushes");
+
+    /**
+     * Writes a snapshot of the repository.
+     */
+    interface Flush {
+
+        /**
+         * Writes a snapshot covering every mutation counted so far.
+         *
+         * @return the {@link #requested()} count the snapshot covers
+         * @throws IOException if the snapshot cannot be written
+         */
+        long write() throws IOException;
+    }
+
+    private final FlushPolicy policy;
+    private final Flush flush;
+    private final Thread thread;
+    private long requested;
+    private long attempted;
+    private long flushed;
+    private long firstPendingNanos;
+    private long retryAtNanos;
+    private boolean retryPending;
+    private boolean closed;
+    private boolean done;
+
+    /**
+     * Creates and starts the writer thread.
+     *
+     * @param policy when to flush
+     * @param flush  writes a snapshot of the repository
+     * @param name   name of the writer thread
+     */
+    WriteBehindWriter(FlushPolicy policy, Flush flush, String name) {
+        this.policy = policy;
+        this.flush = flush;
+        this.thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Counts mutations applied in memory. Called with the repository lock
+     * held, so a snapshot taken under that lock covers exactly the
+     * mutations counted before it.
+     *
+     * @param count number of mutations
+     */
+    synchronized void mutated(int count) {
+        if (requested == flushed) {
+            firstPendingNanos = System.nanoTime();
+        }
+        requested += count;
+        MUTATIONS.add(count);
+        notifyAll();
+    }
+
+    /**
+     * Returns the number of mutations counted so far.
+     */
+    synchronized long requested() {
+        return requested;
+    }
+
+    /**
+     * With a {@link FlushPolicy#sync()} policy, waits until every mutation
+     * counted so far has been written, or a write of them has failed.
+     * Must not be called with the repository lock held.
+     */
+    void awaitFlushed() {
+        if (!policy.sync()) return;
+        synchronized (this) {
+            long target = requested;
+            try {
+                while (attempted < target && !done) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Flushes pending mutations and stops the writer thread. Must not be
+     * called with the repository lock held.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (awaitDue()) {
+                flushPending();
+            }
+        } catch (InterruptedException e) {
+            // stop waiting and write what is pending
+        }
+        flushPending();
+        synchronized (this) {
+            done = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits until pending mutations are due for a flush.
+     *
+     * @return false once the writer is closed
+     */
+    private synchronized boolean awaitDue() throws InterruptedException {
+        while (!closed) {
+            long pending = requested - flushed;
+            long now = System.nanoTime();
+            if (pending == 0) {
+                wait();
+            } else if (retryPending && now - retryAtNanos < 0) {
+                TimeUnit.NANOSECONDS.timedWait(this, retryAtNanos - now);
+            } else if (policy.sync() || policy.maxPending() > 0 && pending >= policy.maxPending()) {
+                return true;
+            } else if (policy.maxDelayMs() > 0) {
+                long wait = firstPendingNanos + TimeUnit.MILLISECONDS.toNanos(policy.maxDelayMs()) - now;
+                if (wait <= 0) return true;
+                TimeUnit.NANOSECONDS.timedWait(this, wait);
+            } else {
+                wait();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes one snapshot covering everything pending, outside this
+     * writer's lock so mutations can be counted meanwhile.
+     */
+    private void flushPending() {
+        long target;
+        synchronized (this) {
+            if (requested == flushed) return;
+            target = requested;
+        }
+
+        long covered = target;
+        boolean written = false;
+        try {
+            covered = Math.max(target, flush.write());
+            written = true;
+        } catch (IOException e) {
+            System.out.println("Error saving contacts.");
+        }
+
+        synchronized (this) {
+            attempted = Math.max(attempted, covered);
+            if (written) {
+                flushed = covered;
+                retryPending = false;
+                firstPendingNanos = System.nanoTime();
+                FLUSHES.increment();
+            } else {
+                retryAtNanos = System.nanoTime() + RETRY_NANOS;
+                retryPending = true;
+            }
+            notifyAll();
+        }
+    }
+}
@@ -1,16 +1,29 @@
 package com.khan.fazal.intern.model;
 
+import java.util.Comparator;
+
 /**
  * Represents a single contact with basic information:
  * name, phone number, and email address.
  *
  * This class is used as the data model for storing and
- * managing contact entries.
+ * managing contact entries. Subclasses may serve the fields from a
+ * different representation by overriding the getters; everything else
+ * reads the fields through them.
  */
 public class Contact {
+
+    /**
+     * Orders contacts by name, ignoring case; names differing only in case
+     * fall back to their natural order so the ordering is total.
+     */
+    public static final Comparator<Contact> NAME_ORDER =
+            Comparator.comparing(Contact::getName, String.CASE_INSENSITIVE_ORDER).thenComparing(Contact::getName);
+
     private String name;
     private String phone;
     private String email;
+    private int id = -1;
 
     /**
      * Constructs a contact with the specified name, phone, and email.
@@ -25,6 +38,13 @@ public class Contact {
         this.email = email;
     }
 
+    /**
+     * Constructs a contact whose fields are supplied by a subclass
+     * overriding the getters.
+     */
+    protected Contact() {
+    }
+
     /**
      * Returns the contact's name.
      *
@@ -46,6 +66,21 @@ public class Contact {
      */
     public String getEmail() { return email; }
 
+    /**
+     * Returns the ID assigned to the contact by the repository while it is
+     * held in memory. IDs are not persisted.
+     *
+     * @return ID of the contact, or -1 if it has not been stored yet
+     */
+    public int getId() { return id; }
+
+    /**
+     * Assigns the in-memory ID of the contact.
+     *
+     * @param id the ID assigned by the repository
+     */
+    public void setId(int id) { this.id = id; }
+
     /**
      * Converts the contact to a CSV-friendly string format.
      *
@@ -53,6 +88,6 @@ public class Contact {
      */
     @Override
     public String toString() {
-        return name + "," + phone + "," + email;
+        return getName() + "," + getPhone() + "," + getEmail();
     }
 }
@@ -0,0 +1,23 @@
+package com.khan.fazal.intern.service;
+
+/**
+ * A point-in-time view of the search result cache counters.
+ *
+ * @param hits          searches answered from the cache
+ * @param misses        searches that had to query the indexes
+ * @param evictions     entries dropped to stay within the entry or size bound
+ * @param invalidations entries dropped because a write changed their results
+ * @param entries       number of cached queries
+ * @param cachedIds     total number of contact IDs held by the cache
+ */
+public record CacheStats(long hits, long misses, long evictions, long invalidations,
+                         int entries, long cachedIds) {
+
+    /**
+     * Returns the fraction of searches answered from the cache.
+     */
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
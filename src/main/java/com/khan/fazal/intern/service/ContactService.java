@@ -1,42 +1,304 @@
 package com.khan.fazal.intern.service;
 
 import com.khan.fazal.intern.model.Contact;
-import com.khan.fazal.intern.dao.ContactRepository;
+import com.khan.fazal.intern.dao.ContactStore;
+import com.khan.fazal.intern.dao.CsvContactLoader;
 import com.khan.fazal.intern.utils.InputValidator;
+import com.khan.fazal.intern.utils.Metrics;
+import com.khan.fazal.intern.utils.NGramIndex;
+import com.khan.fazal.intern.utils.TokenIndex;
 import com.khan.fazal.intern.utils.Trie;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.*;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 /**
  * Provides services for managing contacts including adding,
  * deleting, listing, and searching contacts using a Trie
  * for efficient prefix-based search.
+ *
+ * Every word of a name is also indexed in a {@link TokenIndex}, so a
+ * search finds contacts by surname or middle name, and a query of several
+ * words ("con edo") finds names with a word starting with each of them.
+ *
+ * Phone numbers and lower-cased email addresses are kept in
+ * {@link NGramIndex}es, so substring matches on them are answered from
+ * posting lists rather than by scanning every contact. The indexes are
+ * built on the first search, so commands that never search start without
+ * paying for them, and are maintained incrementally on add and delete
+ * from then on.
+ *
+ * The service is safe for concurrent use. Writers are serialized through
+ * the write side of a {@link StampedLock}; searches walk the indexes under
+ * the shared read side, so readers never block each other and never see a
+ * half-updated index. {@link #getContacts()} reads without locking: it
+ * hands out an immutable snapshot that is rebuilt lazily after a write and
+ * shared by all readers until the next one.
+ *
+ * Search results are kept in a bounded LRU {@link QueryCache}. Writes only
+ * drop the cached queries whose results the changed contact belongs to.
+ *
+ * {@link #searchFuzzy} tolerates typos in names by walking the name Trie
+ * with a bounded edit distance, within a fixed time budget.
+ *
+ * {@link #searchPage} returns one page of results at a time, in name or
+ * relevance order, without materializing or sorting the whole result set.
+ *
+ * Searches, writes and index builds are timed under {@code service.*},
+ * and the book size, index sizes and cache counters are published as
+ * gauges, see {@link Metrics}.
  */
-public class ContactService {
-    private final ContactRepository repository;
-    private final Trie trie;
+public final class ContactService implements AutoCloseable {
+    private static final int CACHE_ENTRIES = 1024;
+    private static final long CACHE_IDS = 1 << 20;
+    private static final int CACHE_CLEAR_BATCH = 256;
+    private static final long FUZZY_BUDGET_MS = 50;
+    private static final int WALK_PER_RESULT = 16;
+    private static final int EXACT = 0;
+    private static final int PREFIX = 1;
+    private static final int SUBSTRING = 2;
+    private static final Comparator<Ranked> RANKED =
+            Comparator.comparingInt(Ranked::rank).thenComparing(Ranked::contact, Contact.NAME_ORDER);
+    private static final Metrics.Timer INDEX_TIMER = Metrics.timer("service.index");
+    private static final Metrics.Timer SEARCH_TIMER = Metrics.timer("service.search");
+    private static final Metrics.Timer PAGE_TIMER = Metrics.timer("service.searchPage");
+    private static final Metrics.Timer FUZZY_TIMER = Metrics.timer("service.searchFuzzy");
+    private static final Metrics.Timer SCAN_TIMER = Metrics.timer("service.scan");
+    private static final Metrics.Timer ADD_TIMER = Metrics.timer("service.add");
+    private static final Metrics.Timer UPDATE_TIMER = Metrics.timer("service.update");
+    private static final Metrics.Timer DELETE_TIMER = Metrics.timer("service.delete");
+    private static final Metrics.Timer IMPORT_TIMER = Metrics.timer("service.import");
+
+    private final ContactStore repository;
+    private Trie prebuiltTrie;
+    private Trie trie;
+    private TokenIndex tokenIndex;
+    private NGramIndex phoneIndex;
+    private NGramIndex emailIndex;
+    private volatile boolean indexed;
+    private final StampedLock lock = new StampedLock();
+    private final QueryCache cache = new QueryCache(CACHE_ENTRIES, CACHE_IDS);
+    private volatile long version;
+    private volatile Snapshot snapshot;
+
+    /**
+     * An immutable copy of all contacts, tagged with the service version
+     * it was taken at.
+     */
+    private record Snapshot(long version, List<Contact> contacts) {}
+
+    /**
+     * A search result with its relevance rank; always 0 in name order.
+     */
+    private record Ranked(int rank, Contact contact) {}
 
     /**
      * Initializes the contact service by loading all existing
-     * contacts from the repository and populating the Trie.
+     * contacts from the repository, which is sharded when
+     * {@code -Dcontacts.shards} is set (see {@link ContactStore#open()}).
      */
     public ContactService() {
-        this.repository = new ContactRepository();
-        this.trie = new Trie();
-        repository.getAllContacts().forEach(c -> trie.insert(c.getName()));
+        this(ContactStore.open());
+    }
+
+    /**
+     * Initializes the contact service on top of the given repository.
+     * The repository's prebuilt name index, if it was loaded from a binary
+     * snapshot, is kept for the first search; otherwise the Trie is built
+     * from all contacts at that point.
+     *
+     * @param repository the repository holding the contacts
+     */
+    public ContactService(ContactStore repository) {
+        this.repository = repository;
+        this.prebuiltTrie = repository.getNameIndex();
+        publishGauges();
+    }
+
+    /**
+     * Publishes the book size, index sizes and cache counters of this
+     * service, replacing those of any earlier one.
+     */
+    private void publishGauges() {
+        Metrics.gauge("contacts", this, s -> s.repository.size());
+        Metrics.gauge("index.names", this, s -> s.indexed ? s.trie.size() : 0);
+        Metrics.gauge("index.tokens", this, s -> s.indexed ? s.tokenIndex.tokenCount() : 0);
+        Metrics.gauge("index.phoneGrams", this, s -> s.indexed ? s.phoneIndex.gramCount() : 0);
+        Metrics.gauge("index.emailGrams", this, s -> s.indexed ? s.emailIndex.gramCount() : 0);
+        Metrics.gauge("cache.hits", this, s -> s.cache.stats().hits());
+        Metrics.gauge("cache.misses", this, s -> s.cache.stats().misses());
+        Metrics.gauge("cache.hitPercent", this, s -> Math.round(s.cache.stats().hitRate() * 100));
+        Metrics.gauge("cache.entries", this, s -> s.cache.stats().entries());
+    }
+
+    /**
+     * Builds the name, phone and email indexes if no search has done so
+     * yet. Runs under the write lock without publishing a new version,
+     * since the contacts themselves do not change.
+     */
+    private void ensureIndexed() {
+        if (indexed) return;
+
+        long stamp = lock.writeLock();
+        try {
+            if (indexed) return;
+            long start = Metrics.start();
+            List<Contact> all = repository.getAllContacts();
+            if (prebuiltTrie != null) {
+                trie = prebuiltTrie;
+                prebuiltTrie = null;
+            } else {
+                trie = new Trie();
+                all.forEach(c -> trie.insert(c.getName(), c.getId()));
+            }
+            // in ID order, so posting lists are built by appending
+            List<Contact> byId = new ArrayList<>(all);
+            byId.sort(Comparator.comparingInt(Contact::getId));
+            tokenIndex = new TokenIndex();
+            phoneIndex = new NGramIndex();
+            emailIndex = new NGramIndex();
+            byId.forEach(this::indexDetails);
+            indexed = true;
+            INDEX_TIMER.stop(start);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds the contact to the name, phone and email indexes, if they have
+     * been built. Must run under {@link #write}.
+     *
+     * @param c the contact to index
+     */
+    private void index(Contact c) {
+        if (!indexed) {
+            prebuiltTrie = null;
+            return;
+        }
+        trie.insert(c.getName(), c.getId());
+        indexDetails(c);
     }
 
     /**
-     * Retrieves all saved contacts.
+     * Adds the words of the contact's name to the word index, and its phone
+     * and email to their substring indexes.
      *
-     * @return a list of all contacts
+     * @param c the contact to index
+     */
+    private void indexDetails(Contact c) {
+        tokenIndex.add(c.getName(), c.getId());
+        phoneIndex.add(c.getPhone(), c.getId());
+        emailIndex.add(c.getEmail().toLowerCase(), c.getId());
+    }
+
+    /**
+     * Removes the contact from the name, phone and email indexes, if they
+     * have been built. Must run under {@link #write}.
+     *
+     * @param c the contact to remove
+     */
+    private void unindex(Contact c) {
+        if (!indexed) {
+            prebuiltTrie = null;
+            return;
+        }
+        trie.delete(c.getName(), c.getId());
+        tokenIndex.remove(c.getName(), c.getId());
+        phoneIndex.remove(c.getPhone(), c.getId());
+        emailIndex.remove(c.getEmail().toLowerCase(), c.getId());
+    }
+
+    /**
+     * Retrieves all saved contacts, sorted by name, as an immutable
+     * snapshot. The snapshot is copied from the repository's sorted list
+     * once after a write and reused until the next one, so repeated calls
+     * are cheap and never sort.
+     *
+     * @return an unmodifiable, name-ordered list of all contacts
      */
     public List<Contact> getContacts() {
-        return repository.getAllContacts();
+        Snapshot current = snapshot;
+        if (current != null && current.version() == version) {
+            return current.contacts();
+        }
+
+        long stamp = lock.readLock();
+        try {
+            current = new Snapshot(version, List.copyOf(repository.getAllContacts()));
+            snapshot = current;
+            return current.contacts();
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
     /**
-     * Adds a new contact after validating phone and email.
-     * Inserts the contact into both the repository and the Trie.
+     * Returns the number of contacts in the book.
+     *
+     * @return number of contacts
+     */
+    public int size() {
+        return repository.size();
+    }
+
+    /**
+     * Returns the service version, which changes after every write. Callers
+     * caching search results can compare versions to detect stale results.
+     *
+     * @return the current version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Runs a read-only operation under the read lock. The indexes and the
+     * repository are mutated in place by writers, so they are never read
+     * optimistically; only immutable snapshots are.
+     *
+     * @param read the operation to run
+     * @return the result of the operation
+     */
+    private <T> T read(Supplier<T> read) {
+        long stamp = lock.readLock();
+        try {
+            return read.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Runs a mutation under the write lock and publishes a new version.
+     * Waits for {@link ContactStore#awaitPersisted()} only after releasing
+     * the lock, so concurrent writers can share one flush.
+     *
+     * @param write the mutation to run
+     * @return the result of the mutation
+     */
+    private <T> T write(Supplier<T> write) {
+        long stamp = lock.writeLock();
+        T result;
+        try {
+            result = write.get();
+        } finally {
+            version++;
+            snapshot = null;
+            lock.unlockWrite(stamp);
+        }
+        repository.awaitPersisted();
+        return result;
+    }
+
+    /**
+     * Adds a new contact after validating name, phone and email.
+     * Inserts the contact into both the repository and the indexes.
+     * Contacts whose name, phone or email already exists are rejected.
      *
      * @param name  the contact's name
      * @param phone the contact's phone number
@@ -44,47 +306,623 @@ public class ContactService {
      * @return true if the contact was added successfully; false otherwise
      */
     public boolean addContact(String name, String phone, String email) {
-        if (!InputValidator.isValidPhone(phone) || !InputValidator.isValidEmail(email)) {
+        if (!InputValidator.isValidName(name) || !InputValidator.isValidPhone(phone)
+                || !InputValidator.isValidEmail(email)) {
             return false;
         }
         Contact contact = new Contact(toTitleCase(name), phone, email);
-        repository.addContact(contact);
-        trie.insert(name);
-        return true;
+        long start = Metrics.start();
+        boolean added = write(() -> {
+            if (!repository.addContact(contact)) {
+                return false;
+            }
+            index(contact);
+            cache.invalidate(contact);
+            return true;
+        });
+        ADD_TIMER.stop(start);
+        return added;
+    }
+
+    /**
+     * Imports contacts from CSV lines of the form {@code name,phone,email}.
+     * Rows are parsed in parallel and validated in one batch, the valid ones are added to
+     * the repository in one batch and persisted once, and the indexes are
+     * updated in a single pass. Malformed, invalid and duplicate rows are
+     * reported as rejects.
+     *
+     * @param in source of CSV lines
+     * @return the number of imported contacts and the rejected rows
+     * @throws IOException if the source cannot be read
+     */
+    public ImportResult importContacts(BufferedReader in) throws IOException {
+        long start = Metrics.start();
+        List<String> lines = in.lines().toList();
+        Object[] parsed = IntStream.range(0, lines.size()).parallel()
+                .mapToObj(i -> parseImportRow(lines.get(i)))
+                .toArray();
+
+        List<Contact> rows = new ArrayList<>();
+        List<Integer> rowLines = new ArrayList<>();
+        List<ImportResult.Reject> rejects = new ArrayList<>();
+        for (int i = 0; i < parsed.length; i++) {
+            if (parsed[i] instanceof Contact c) {
+                rows.add(c);
+                rowLines.add(i);
+            } else if (parsed[i] != null) {
+                rejects.add(new ImportResult.Reject(i + 1, lines.get(i), (String) parsed[i]));
+            }
+        }
+
+        BitSet invalid = InputValidator.validateAll(rows);
+        List<Contact> batch = new ArrayList<>(rows.size() - invalid.cardinality());
+        List<Integer> batchLines = new ArrayList<>(batch.size());
+        for (int i = 0; i < rows.size(); i++) {
+            int line = rowLines.get(i);
+            if (invalid.get(i)) {
+                Contact row = rows.get(i);
+                String reason = !InputValidator.isValidName(row.getName()) ? "invalid name"
+                        : !InputValidator.isValidPhone(row.getPhone()) ? "invalid phone" : "invalid email";
+                rejects.add(new ImportResult.Reject(line + 1, lines.get(line), reason));
+            } else {
+                batch.add(rows.get(i));
+                batchLines.add(line);
+            }
+        }
+
+        boolean[] added = write(() -> {
+            boolean[] stored = repository.addContacts(batch);
+            boolean clearCache = batch.size() > CACHE_CLEAR_BATCH;
+            if (clearCache) cache.clear();
+            for (int i = 0; i < stored.length; i++) {
+                if (!stored[i]) continue;
+                index(batch.get(i));
+                if (!clearCache) cache.invalidate(batch.get(i));
+            }
+            return stored;
+        });
+
+        int imported = 0;
+        for (int i = 0; i < added.length; i++) {
+            if (added[i]) {
+                imported++;
+            } else {
+                int line = batchLines.get(i);
+                rejects.add(new ImportResult.Reject(line + 1, lines.get(line), "duplicate name, phone or email"));
+            }
+        }
+        rejects.sort(Comparator.comparingInt(ImportResult.Reject::lineNumber));
+        IMPORT_TIMER.stop(start);
+        return new ImportResult(imported, rejects);
+    }
+
+    /**
+     * Parses a single import row. The phone and email are validated
+     * afterwards for the whole batch.
+     *
+     * @param line the raw CSV line
+     * @return the contact, a reject reason, or null for blank lines
+     */
+    private static Object parseImportRow(String line) {
+        if (line.isBlank()) return null;
+        Contact raw = CsvContactLoader.parse(line.strip());
+        if (raw == null) return "expected name,phone,email";
+        return new Contact(toTitleCase(raw.getName()), raw.getPhone(), raw.getEmail());
+    }
+
+    /**
+     * Streams all contacts to the given writer as CSV lines.
+     *
+     * @param out destination of the CSV lines
+     * @return the number of contacts written
+     * @throws IOException if writing fails
+     */
+    public int exportContacts(Writer out) throws IOException {
+        return repository.exportContacts(out);
     }
 
     /**
-     * Deletes a contact from the repository and the Trie using the given name.
+     * Looks up a contact by name (case-insensitive).
+     *
+     * @param name the contact name
+     * @return the contact, or null if there is none
+     */
+    public Contact getContact(String name) {
+        return repository.getByName(name);
+    }
+
+    /**
+     * Replaces the details of an existing contact after validating the new
+     * name, phone and email, and re-indexes it.
+     *
+     * @param name     the current name of the contact
+     * @param newName  the new name
+     * @param phone    the new phone number
+     * @param email    the new email address
+     * @return true if the contact was updated; false if it does not exist,
+     *         the input is invalid, or the new details clash with another contact
+     */
+    public boolean updateContact(String name, String newName, String phone, String email) {
+        if (!InputValidator.isValidName(newName) || !InputValidator.isValidPhone(phone)
+                || !InputValidator.isValidEmail(email)) {
+            return false;
+        }
+        Contact updated = new Contact(toTitleCase(newName), phone, email);
+        long start = Metrics.start();
+        boolean replaced = write(() -> {
+            Contact previous = repository.updateContact(name, updated);
+            if (previous == null) {
+                return false;
+            }
+            unindex(previous);
+            index(updated);
+            cache.invalidate(previous);
+            cache.invalidate(updated);
+            return true;
+        });
+        UPDATE_TIMER.stop(start);
+        return replaced;
+    }
+
+    /**
+     * Deletes a contact from the repository and all indexes using the given name.
      *
      * @param name the name of the contact to be deleted
+     * @return true if a contact was deleted; false if none had that name
      */
-    public void deleteContact(String name) {
-        repository.deleteContact(name);
-        trie.delete(name);
+    public boolean deleteContact(String name) {
+        long start = Metrics.start();
+        boolean deleted = write(() -> {
+            Contact removed = repository.deleteContact(name);
+            if (removed == null) {
+                return false;
+            }
+            unindex(removed);
+            cache.invalidate(removed);
+            return true;
+        });
+        DELETE_TIMER.stop(start);
+        return deleted;
     }
 
     /**
-     * Searches for contacts that match the given prefix in name, phone, or email.
+     * Searches for contacts whose name starts with the given prefix or has
+     * a word starting with each word of it, or whose phone or email
+     * contains it. Candidate IDs are gathered from the name, word, phone
+     * and email indexes, so the cost depends on the number
+     * of matches rather than the size of the book. Results are returned in
+     * name order.
+     *
+     * The name-ordered result IDs are cached per query. A cached result is
+     * only used if no write has invalidated the cache since it was fetched.
      *
      * @param prefix the search keyword
      * @return a list of matching contacts
      */
     public List<Contact> searchContacts(String prefix) {
-        String lowerPrefix = prefix.toLowerCase();
-        Set<String> nameMatches = new HashSet<>(trie.searchByPrefix(lowerPrefix));
-        List<Contact> matches = new ArrayList<>();
-
-        for (Contact c : getContacts()) {
-            if (nameMatches.contains(c.getName().toLowerCase()) ||
-                    c.getPhone().contains(lowerPrefix) ||
-                    c.getEmail().toLowerCase().contains(lowerPrefix)) {
-                matches.add(c);
+        long start = Metrics.start();
+        List<Contact> matches = search(prefix.toLowerCase());
+        SEARCH_TIMER.stop(start);
+        return matches;
+    }
+
+    private List<Contact> search(String lowerPrefix) {
+        if (lowerPrefix.isEmpty()) {
+            return getContacts();
+        }
+        ensureIndexed();
+
+        long epoch = cache.epoch();
+        int[] cached = cache.get(lowerPrefix);
+        if (cached != null) {
+            List<Contact> hit = read(() -> cache.epoch() == epoch ? toContacts(cached) : null);
+            if (hit != null) return hit;
+        }
+
+        List<Contact> matches = read(() -> findMatches(lowerPrefix));
+        matches.sort(Contact.NAME_ORDER);
+        int[] ids = new int[matches.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = matches.get(i).getId();
+        }
+        cache.put(lowerPrefix, ids, epoch);
+        return matches;
+    }
+
+    /**
+     * Returns one page of the results of {@link #searchContacts}: at most
+     * {@code limit} contacts following the cursor, in the requested order.
+     * Pages are keyed by the last contact returned rather than by an
+     * offset, so a write between two requests neither repeats nor skips
+     * the contacts that come after the cursor.
+     *
+     * Only the requested page is materialized. In name order the sorted
+     * book is walked from the cursor, testing each contact, until the page
+     * is full, so a broad query stops as soon as it has enough results.
+     * For a narrow query the walk gives up after {@value #WALK_PER_RESULT}
+     * contacts per wanted result, and the rest of the page is taken from
+     * the indexes, keeping the first matches in a heap bounded by the page
+     * size. Relevance order always goes through the indexes and the heap.
+     *
+     * @param query  the search keyword; empty for all contacts
+     * @param order  the order of the results
+     * @param limit  the maximum number of contacts on the page
+     * @param cursor the {@link SearchPage#nextCursor} of the previous page,
+     *               or null for the first page
+     * @return the page of contacts and the cursor of the next page
+     * @throws IllegalArgumentException if the limit is below 1 or the
+     *                                  cursor is malformed
+     */
+    public SearchPage searchPage(String query, SearchOrder order, int limit, String cursor) {
+        if (limit < 1) throw new IllegalArgumentException("limit must be at least 1");
+        long start = Metrics.start();
+        String lowerQuery = query.toLowerCase();
+        Ranked after = cursor == null ? null : parseCursor(cursor);
+        // one extra result tells whether there is a next page
+        int wanted = Math.min(limit, Integer.MAX_VALUE - 1) + 1;
+
+        List<Ranked> page;
+        if (lowerQuery.isEmpty()) {
+            page = slice(getContacts(), after, wanted, order == SearchOrder.NAME ? 0 : PREFIX);
+        } else if (order == SearchOrder.NAME) {
+            page = walk(lowerQuery, after, wanted);
+        } else {
+            ensureIndexed();
+            page = read(() -> topK(lowerQuery, SearchOrder.RELEVANCE, after, wanted));
+        }
+
+        String nextCursor = null;
+        if (page.size() > limit) {
+            page = page.subList(0, limit);
+            Ranked last = page.get(limit - 1);
+            nextCursor = last.rank() + ":" + last.contact().getName();
+        }
+        List<Contact> contacts = new ArrayList<>(page.size());
+        for (Ranked r : page) {
+            contacts.add(r.contact());
+        }
+        PAGE_TIMER.stop(start);
+        return new SearchPage(Collections.unmodifiableList(contacts), nextCursor);
+    }
+
+    /**
+     * Takes the contacts following the cursor from the name-ordered book,
+     * all of which share the given rank.
+     */
+    private static List<Ranked> slice(List<Contact> all, Ranked after, int wanted, int rank) {
+        int from = after == null || after.rank() < rank ? 0
+                : after.rank() > rank ? all.size()
+                : position(all, after.contact());
+        int to = (int) Math.min(all.size(), (long) from + wanted);
+        List<Ranked> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add(new Ranked(rank, all.get(i)));
+        }
+        return page;
+    }
+
+    /**
+     * Collects name-ordered matches by walking the book from the cursor,
+     * finishing from the indexes if matches turn out to be sparse.
+     */
+    private List<Ranked> walk(String lowerQuery, Ranked after, int wanted) {
+        List<Contact> all = getContacts();
+        int from = after == null ? 0 : position(all, after.contact());
+        int end = (int) Math.min(all.size(), from + (long) WALK_PER_RESULT * wanted);
+        List<Ranked> page = new ArrayList<>(Math.min(wanted, 1024));
+        int i = from;
+        for (; i < end && page.size() < wanted; i++) {
+            Contact c = all.get(i);
+            if (matches(c, lowerQuery)) page.add(new Ranked(0, c));
+        }
+        if (page.size() == wanted || i == all.size()) return page;
+
+        ensureIndexed();
+        Ranked walked = new Ranked(0, all.get(i - 1));
+        int rest = wanted - page.size();
+        page.addAll(read(() -> topK(lowerQuery, SearchOrder.NAME, walked, rest)));
+        return page;
+    }
+
+    /**
+     * Keeps the first {@code k} matches following {@code after} in a heap
+     * bounded by {@code k}, instead of sorting every match. Must run under
+     * {@link #read}.
+     *
+     * @return the first matches, in order
+     */
+    private List<Ranked> topK(String lowerQuery, SearchOrder order, Ranked after, int k) {
+        PriorityQueue<Ranked> heap = new PriorityQueue<>(Math.min(k, 1024) + 1, RANKED.reversed());
+        if (order == SearchOrder.NAME) {
+            for (int id : matchIds(lowerQuery)) {
+                offer(heap, new Ranked(0, repository.getById(id)), after, k);
             }
+        } else {
+            offerByRelevance(heap, lowerQuery, after, k);
+        }
+        Ranked[] first = new Ranked[heap.size()];
+        for (int i = first.length - 1; i >= 0; i--) {
+            first[i] = heap.poll();
         }
+        return Arrays.asList(first);
+    }
+
+    /**
+     * Adds a match following {@code after} to a heap holding the best
+     * {@code k} so far, whose head is the worst of them.
+     */
+    private static void offer(PriorityQueue<Ranked> heap, Ranked r, Ranked after, int k) {
+        if (after != null && RANKED.compare(r, after) <= 0) return;
+        if (heap.size() < k) {
+            heap.add(r);
+        } else if (RANKED.compare(r, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(r);
+        }
+    }
+
+    /**
+     * Offers the matches of a lower-cased, non-empty query with their
+     * relevance rank, which follows from the index a match came from: an
+     * exact name, phone or email first, then a name, name word, phone or
+     * email starting with the query, then the rest. The contacts merely
+     * containing the query are only looked at if they can still make the
+     * page, which a broad query usually fills before.
+     */
+    private void offerByRelevance(PriorityQueue<Ranked> heap, String lowerQuery, Ranked after, int k) {
+        int[] names = trie.searchByPrefix(lowerQuery);
+        int[] words = tokenIndex.search(lowerQuery);
+        int[] phones = phoneIndex.candidates(lowerQuery);
+        int[] emails = emailIndex.candidates(lowerQuery);
+        boolean exact = NGramIndex.isExact(lowerQuery);
+
+        // exact and prefix matches as id << 2 | rank
+        long[] better = new long[names.length + words.length + 16];
+        int n = 0;
+        for (int id : names) {
+            String name = repository.getById(id).getName();
+            boolean same = name.length() == lowerQuery.length() && name.toLowerCase().equals(lowerQuery);
+            better[n++] = (long) id << 2 | (same ? EXACT : PREFIX);
+        }
+        for (int id : words) {
+            better[n++] = (long) id << 2 | PREFIX;
+        }
+        for (int field = 0; field < 2; field++) {
+            for (int id : field == 0 ? phones : emails) {
+                Contact c = repository.getById(id);
+                String value = field == 0 ? c.getPhone() : c.getEmail();
+                if (!value.regionMatches(true, 0, lowerQuery, 0, lowerQuery.length())) continue;
+                if (n == better.length) better = Arrays.copyOf(better, n * 2);
+                better[n++] = (long) id << 2 | (value.length() == lowerQuery.length() ? EXACT : PREFIX);
+            }
+        }
+        // sorted, the best rank of each ID comes first
+        Arrays.sort(better, 0, n);
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (m == 0 || better[i] >>> 2 != better[m - 1] >>> 2) better[m++] = better[i];
+        }
+        for (int i = 0; i < m; i++) {
+            offer(heap, new Ranked((int) better[i] & 3, repository.getById((int) (better[i] >>> 2))), after, k);
+        }
+        if (heap.size() == k && heap.peek().rank() < SUBSTRING) return;
+
+        // the rest: phones and emails containing the query, merged by ID
+        int[] ids = new int[m];
+        for (int i = 0; i < m; i++) {
+            ids[i] = (int) (better[i] >>> 2);
+        }
+        for (int p = 0, e = 0; p < phones.length || e < emails.length; ) {
+            int id = e == emails.length || (p < phones.length && phones[p] < emails[e]) ? phones[p] : emails[e];
+            boolean inPhones = p < phones.length && phones[p] == id;
+            boolean inEmails = e < emails.length && emails[e] == id;
+            if (inPhones) p++;
+            if (inEmails) e++;
+            if (Arrays.binarySearch(ids, id) >= 0) continue;
+
+            Contact c = repository.getById(id);
+            if (exact || inPhones && c.getPhone().contains(lowerQuery)
+                    || inEmails && c.getEmail().toLowerCase().contains(lowerQuery)) {
+                offer(heap, new Ranked(SUBSTRING, c), after, k);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the first contact after {@code after} in a
+     * name-ordered list.
+     */
+    private static int position(List<Contact> sorted, Contact after) {
+        int lo = 0;
+        int hi = sorted.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Contact.NAME_ORDER.compare(sorted.get(mid), after) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
 
+    /**
+     * Parses a cursor of the form {@code rank:name}.
+     */
+    private static Ranked parseCursor(String cursor) {
+        int colon = cursor.indexOf(':');
+        try {
+            int rank = Integer.parseInt(cursor.substring(0, Math.max(colon, 0)));
+            return new Ranked(rank, new Contact(cursor.substring(colon + 1), "", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * Searches for contacts whose name starts with something close to the
+     * query, allowing for typos: one edit for queries of three to five
+     * characters and two for longer ones, where an edit inserts, deletes or
+     * replaces a character or swaps two adjacent ones. Queries shorter
+     * than three characters only match exact prefixes.
+     *
+     * Results are ranked by the number of edits, then by name. The search
+     * stops after {@value #FUZZY_BUDGET_MS} ms, counted from when it gets
+     * the read lock; names it did not reach by then, which come later in
+     * name order, are left out.
+     *
+     * @param query the search keyword
+     * @return the matching contacts, closest first
+     */
+    public List<Contact> searchFuzzy(String query) {
+        String lowerQuery = query.toLowerCase().strip();
+        if (lowerQuery.isEmpty()) {
+            return getContacts();
+        }
+        ensureIndexed();
+
+        int maxEdits = lowerQuery.length() < 3 ? 0 : lowerQuery.length() < 6 ? 1 : 2;
+        long start = Metrics.start();
+        List<Contact> matches = read(() -> {
+            // the budget starts once the lock is held, so waiting for a writer does not use it up
+            long deadline = System.nanoTime() + FUZZY_BUDGET_MS * 1_000_000;
+            // the Trie returns names in order, so a stable pass per distance ranks them
+            Trie.FuzzyMatches found = trie.searchFuzzy(lowerQuery, maxEdits, deadline);
+            List<Contact> ranked = new ArrayList<>(found.ids().length);
+            for (int distance = 0; distance <= maxEdits; distance++) {
+                for (int i = 0; i < found.ids().length; i++) {
+                    if (found.distances()[i] == distance) {
+                        ranked.add(Objects.requireNonNull(repository.getById(found.ids()[i])));
+                    }
+                }
+            }
+            return ranked;
+        });
+        FUZZY_TIMER.stop(start);
+        return matches;
+    }
+
+    /**
+     * Answers a single query by scanning the book, without building the
+     * search indexes, which is cheaper for a process that only searches
+     * once. A sharded repository scans its shards in parallel. Results are
+     * the same as {@link #searchContacts}'s, in name order.
+     *
+     * @param query the search keyword
+     * @return a list of matching contacts
+     */
+    public List<Contact> scanContacts(String query) {
+        String lowerQuery = query.toLowerCase();
+        long start = Metrics.start();
+        List<Contact> matches = read(() -> repository.findAll(c -> matches(c, lowerQuery)));
+        SCAN_TIMER.stop(start);
+        return matches;
+    }
+
+    /**
+     * Returns the search result cache counters, for sizing the cache.
+     *
+     * @return hit, miss, eviction and invalidation counts and current size
+     */
+    public CacheStats getCacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Closes the store this service was created on, persisting anything
+     * still pending.
+     */
+    @Override
+    public void close() {
+        repository.close();
+    }
+
+    /**
+     * Looks up the contacts for cached result IDs. Must run under
+     * {@link #read}.
+     *
+     * @param ids contact IDs
+     * @return the contacts, in the order of the IDs
+     */
+    private List<Contact> toContacts(int[] ids) {
+        List<Contact> contacts = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            contacts.add(Objects.requireNonNull(repository.getById(id)));
+        }
+        return contacts;
+    }
+
+    /**
+     * Tells whether a contact matches a lower-cased query the way
+     * {@link #searchContacts} does: its name starts with the query or has
+     * a word starting with each word of it, or its phone or email contains
+     * it.
+     *
+     * @param c          the contact to test
+     * @param lowerQuery the lower-cased search keyword
+     * @return true if the contact would be part of the search results
+     */
+    public static boolean matches(Contact c, String lowerQuery) {
+        String lowerName = c.getName().toLowerCase();
+        return lowerName.startsWith(lowerQuery)
+                || TokenIndex.matches(lowerName, lowerQuery)
+                || c.getPhone().contains(lowerQuery)
+                || c.getEmail().toLowerCase().contains(lowerQuery);
+    }
+
+    /**
+     * Collects the contacts matching a lower-cased, non-empty query from
+     * the indexes. Must run under {@link #read}.
+     *
+     * @param lowerPrefix the lower-cased search keyword
+     * @return a list of matching contacts in ID order
+     */
+    private List<Contact> findMatches(String lowerPrefix) {
+        int[] ids = matchIds(lowerPrefix);
+        List<Contact> matches = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            matches.add(repository.getById(id));
+        }
         return matches;
     }
 
+    /**
+     * Collects the IDs of the contacts matching a lower-cased, non-empty
+     * query from the indexes. Must run under {@link #read}.
+     *
+     * @param lowerPrefix the lower-cased search keyword
+     * @return the matching contact IDs in ascending order
+     */
+    private int[] matchIds(String lowerPrefix) {
+        int[] names = trie.searchByPrefix(lowerPrefix);
+        int[] words = tokenIndex.search(lowerPrefix);
+        int[] phones = phoneIndex.candidates(lowerPrefix);
+        int[] emails = emailIndex.candidates(lowerPrefix);
+        boolean exact = NGramIndex.isExact(lowerPrefix);
+
+        int[] ids = new int[names.length + words.length + phones.length + emails.length];
+        int n = 0;
+        for (int id : names) {
+            ids[n++] = id;
+        }
+        for (int id : words) {
+            ids[n++] = id;
+        }
+        for (int id : phones) {
+            if (exact || repository.getById(id).getPhone().contains(lowerPrefix)) ids[n++] = id;
+        }
+        for (int id : emails) {
+            if (exact || repository.getById(id).getEmail().toLowerCase().contains(lowerPrefix)) ids[n++] = id;
+        }
+        Arrays.sort(ids, 0, n);
+
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (m == 0 || ids[i] != ids[m - 1]) ids[m++] = ids[i];
+        }
+        return Arrays.copyOf(ids, m);
+    }
+
     /**
      * Converts a string to title case (e.g., "john doe" → "John Doe").
      *
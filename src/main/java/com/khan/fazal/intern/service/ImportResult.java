@@ -0,0 +1,47 @@
+package com.khan.fazal.intern.service;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import: how many contacts were added and which input
+ * rows were rejected, with the reason for each.
+ */
+public class ImportResult {
+
+    /**
+     * A rejected input row.
+     *
+     * @param lineNumber 1-based line number in the source
+     * @param line       the raw line
+     * @param reason     why the row was rejected
+     */
+    public record Reject(int lineNumber, String line, String reason) {}
+
+    private final int imported;
+    private final List<Reject> rejects;
+
+    /**
+     * Creates an import result.
+     *
+     * @param imported number of contacts added
+     * @param rejects  rejected rows in line order
+     */
+    public ImportResult(int imported, List<Reject> rejects) {
+        this.imported = imported;
+        this.rejects = rejects;
+    }
+
+    /**
+     * Returns the number of contacts that were added.
+     *
+     * @return imported contact count
+     */
+    public int getImported() { return imported; }
+
+    /**
+     * Returns the rejected rows in line order.
+     *
+     * @return list of rejects
+     */
+    public List<Reject> getRejects() { return rejects; }
+}
@@ -0,0 +1,127 @@
+package com.khan.fazal.intern.service;
+
+import com.khan.fazal.intern.model.Contact;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache from lower-cased search queries to the IDs of their
+ * results, in name order.
+ *
+ * The cache is bounded both by number of entries and by the total number
+ * of IDs it holds, so a few very broad queries cannot pin a large share of
+ * the heap. Results larger than a quarter of the ID budget are not cached.
+ *
+ * Writes invalidate precisely: only entries whose query matches a changed
+ * contact are dropped. Every invalidation also advances an epoch, which
+ * lets readers detect that a result computed before the write must not be
+ * cached, and that cached IDs fetched before the write may be stale.
+ */
+class QueryCache {
+    private final int maxEntries;
+    private final long maxIds;
+    private final LinkedHashMap<String, int[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedIds;
+    private volatile long epoch;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxEntries maximum number of cached queries
+     * @param maxIds     maximum total number of IDs across all entries
+     */
+    QueryCache(int maxEntries, long maxIds) {
+        this.maxEntries = maxEntries;
+        this.maxIds = maxIds;
+    }
+
+    /**
+     * Returns the current epoch. Capture it before reading the cache or the
+     * indexes and pass it back to {@link #put}.
+     */
+    long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Looks up a query, counting a hit or a miss.
+     *
+     * @param lowerQuery the lower-cased query
+     * @return the cached result IDs in name order, or null if not cached
+     */
+    synchronized int[] get(String lowerQuery) {
+        int[] ids = entries.get(lowerQuery);
+        if (ids == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return ids;
+    }
+
+    /**
+     * Caches the result of a query unless a write invalidated the cache
+     * since {@code epoch} was captured, evicting least recently used
+     * entries as needed.
+     *
+     * @param lowerQuery the lower-cased query
+     * @param ids        the result IDs in name order
+     * @param epoch      the epoch captured before the result was computed
+     */
+    synchronized void put(String lowerQuery, int[] ids, long epoch) {
+        if (epoch != this.epoch || ids.length > maxIds / 4) return;
+
+        int[] previous = entries.put(lowerQuery, ids);
+        if (previous != null) cachedIds -= previous.length;
+        cachedIds += ids.length;
+
+        Iterator<int[]> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries || cachedIds > maxIds) {
+            cachedIds -= eldest.next().length;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Drops the entries whose results include the given contact, whether
+     * it was just added or just removed.
+     *
+     * @param c the contact that changed
+     */
+    synchronized void invalidate(Contact c) {
+        epoch++;
+        Iterator<Map.Entry<String, int[]>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, int[]> e = it.next();
+            if (ContactService.matches(c, e.getKey())) {
+                cachedIds -= e.getValue().length;
+                it.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * Drops all entries.
+     */
+    synchronized void clear() {
+        epoch++;
+        invalidations += entries.size();
+        entries.clear();
+        cachedIds = 0;
+    }
+
+    /**
+     * Returns a snapshot of the cache counters.
+     */
+    synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, invalidations, entries.size(), cachedIds);
+    }
+}
@@ -0,0 +1,19 @@
+package com.khan.fazal.intern.service;
+
+/**
+ * Selects the order of a paged search, see {@link ContactService#searchPage}.
+ */
+public enum SearchOrder {
+
+    /**
+     * Results in name order, as returned by {@link ContactService#searchContacts}.
+     */
+    NAME,
+
+    /**
+     * Exact matches first, then names, words, phones or emails starting
+     * with the query, then the ones merely containing it; each group in
+     * name order.
+     */
+    RELEVANCE
+}
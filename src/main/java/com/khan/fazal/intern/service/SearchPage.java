@@ -0,0 +1,21 @@
+package com.khan.fazal.intern.service;
+
+import com.khan.fazal.intern.model.Contact;
+import java.util.List;
+
+/**
+ * One page of search results.
+ *
+ * @param contacts   the contacts on this page, in the requested order
+ * @param nextCursor the cursor to pass to {@link ContactService#searchPage}
+ *                   for the next page, or null if this is the last page
+ */
+public record SearchPage(List<Contact> contacts, String nextCursor) {
+
+    /**
+     * Tells whether more results follow this page.
+     */
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,95 @@
+package com.khan.fazal.intern.service;
+
+import com.khan.fazal.intern.model.Contact;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A type-ahead search session over a {@link ContactService}.
+ *
+ * The session remembers the results of the queries typed so far, as a
+ * chain in which each query extends the one before it. When a new query
+ * extends the last one, its results are a subset of the previous results,
+ * so they are filtered from that list instead of searching the whole book.
+ * Very broad result sets (more than {@value #REFINE_LIMIT} contacts) are
+ * cheaper to re-query through the indexes than to filter, so those are
+ * searched afresh.
+ * On backspace, the results for the shorter query are still in the chain
+ * and are returned directly.
+ *
+ * The cached chain is dropped whenever the service version changes, so
+ * results never outlive an add, update or delete. A session is meant for a
+ * single input field; its methods are synchronized so overlapping
+ * background searches stay consistent.
+ */
+public class SearchSession {
+    private static final int MAX_DEPTH = 64;
+    private static final int REFINE_LIMIT = 8192;
+
+    private final ContactService service;
+    private final Deque<Step> chain = new ArrayDeque<>();
+    private long version = -1;
+
+    /**
+     * The results of one query in the chain, in name order.
+     */
+    private record Step(String lowerQuery, List<Contact> results) {}
+
+    /**
+     * Creates a session over the given service.
+     *
+     * @param service the service to search
+     */
+    public SearchSession(ContactService service) {
+        this.service = service;
+    }
+
+    /**
+     * Searches for contacts matching the query, reusing the results of
+     * earlier queries in the session when possible. Matches the results of
+     * {@link ContactService#searchContacts}.
+     *
+     * @param query the search keyword
+     * @return an unmodifiable list of matching contacts in name order
+     */
+    public synchronized List<Contact> search(String query) {
+        String lowerQuery = query.toLowerCase();
+        if (lowerQuery.isEmpty()) {
+            return service.getContacts();
+        }
+
+        long current = service.getVersion();
+        if (current != version) {
+            chain.clear();
+            version = current;
+        }
+        while (!chain.isEmpty() && !lowerQuery.startsWith(chain.peek().lowerQuery())) {
+            chain.pop();
+        }
+
+        Step previous = chain.peek();
+        if (previous != null && previous.lowerQuery().equals(lowerQuery)) {
+            return previous.results();
+        }
+
+        List<Contact> results;
+        if (previous != null && previous.results().size() <= REFINE_LIMIT) {
+            results = new ArrayList<>();
+            for (Contact c : previous.results()) {
+                if (ContactService.matches(c, lowerQuery)) results.add(c);
+            }
+            results = List.copyOf(results);
+        } else {
+            results = List.copyOf(service.searchContacts(query));
+        }
+
+        // Only remember the results if no write happened while computing them
+        if (service.getVersion() == current) {
+            if (chain.size() == MAX_DEPTH) chain.removeLast();
+            chain.push(new Step(lowerQuery, results));
+        }
+        return results;
+    }
+}
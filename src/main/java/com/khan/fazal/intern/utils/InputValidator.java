@@ -1,11 +1,36 @@
 package com.khan.fazal.intern.utils;
 
+import com.khan.fazal.intern.model.Contact;
+import java.util.BitSet;
+import java.util.List;
+
 /**
  * Provides utility methods to validate user input such as
- * phone numbers and email addresses using regular expressions.
+ * names, phone numbers and email addresses.
+ *
+ * The checks are single-pass character scanners rather than regular
+ * expressions, so validating a value never compiles a pattern or allocates.
+ * They accept exactly what the original patterns {@code \d{10}} and
+ * {@code ^[\w.-]+@[\w.-]+\.\w+$} accepted, with {@code \d} and {@code \w}
+ * meaning their ASCII classes.
  */
 public class InputValidator {
 
+    /**
+     * Validates that a name can be stored as one CSV field on one line,
+     * that is it contains no comma, carriage return or line feed.
+     *
+     * @param name the name to validate
+     * @return true if the name is valid; false otherwise
+     */
+    public static boolean isValidName(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == ',' || c == '\r' || c == '\n') return false;
+        }
+        return true;
+    }
+
     /**
      * Validates that the phone number consists of exactly 10 digits.
      *
@@ -13,16 +38,69 @@ public class InputValidator {
      * @return true if the phone number is valid; false otherwise
      */
     public static boolean isValidPhone(String phone) {
-        return phone.matches("\\d{10}");
+        if (phone.length() != 10) return false;
+        for (int i = 0; i < 10; i++) {
+            if (!isDigit(phone.charAt(i))) return false;
+        }
+        return true;
     }
 
     /**
-     * Validates the format of an email address.
+     * Validates the format of an email address: a non-empty local part of
+     * word characters, dots and hyphens, a single {@code @}, and a domain of
+     * the same characters whose last dot is preceded by at least one
+     * character and followed by one or more word characters.
      *
      * @param email the email address string to validate
      * @return true if the email format is valid; false otherwise
      */
     public static boolean isValidEmail(String email) {
-        return email.matches("^[\\w.-]+@[\\w.-]+\\.\\w+$");
+        int len = email.length();
+        int at = -1;
+        int lastDot = -1;
+        for (int i = 0; i < len; i++) {
+            char c = email.charAt(i);
+            if (c == '@') {
+                if (at >= 0) return false;
+                at = i;
+            } else if (c == '.') {
+                if (at >= 0) lastDot = i;
+            } else if (c != '-' && !isWordChar(c)) {
+                return false;
+            }
+        }
+        if (at <= 0 || lastDot <= at + 1 || lastDot == len - 1) return false;
+
+        // the top-level part after the last dot must be word characters only
+        for (int i = lastDot + 1; i < len; i++) {
+            if (email.charAt(i) == '-') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Validates the name, phone and email of every contact in a batch.
+     *
+     * @param contacts the contacts to validate
+     * @return a bit set with bit {@code i} set if contact {@code i} has an
+     *         invalid name, phone or email; empty if all are valid
+     */
+    public static BitSet validateAll(List<Contact> contacts) {
+        BitSet failures = new BitSet();
+        for (int i = 0; i < contacts.size(); i++) {
+            Contact c = contacts.get(i);
+            if (!isValidName(c.getName()) || !isValidPhone(c.getPhone()) || !isValidEmail(c.getEmail())) {
+                failures.set(i);
+            }
+        }
+        return failures;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_';
     }
 }
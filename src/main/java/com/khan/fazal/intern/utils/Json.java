@@ -0,0 +1,127 @@
+package com.khan.fazal.intern.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Minimal JSON support for the HTTP server: writing escaped strings and
+ * parsing flat objects whose values are strings. Nested values, numbers
+ * and literals are not needed by the contact endpoints and are rejected.
+ */
+public class Json {
+
+    /**
+     * Writes a value as a quoted, escaped JSON string.
+     *
+     * @param out   destination
+     * @param value the string to write
+     * @throws IOException if writing fails
+     */
+    public static void writeString(Writer out, String value) throws IOException {
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') continue;
+
+            out.write(value, start, i - start);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> out.write(String.format("\\u%04x", (int) c));
+            }
+            start = i + 1;
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+
+    /**
+     * Parses a flat JSON object with string values, such as
+     * {@code {"name":"Conan","phone":"9123456780"}}.
+     *
+     * @param json the JSON text
+     * @return the members in document order
+     * @throws IllegalArgumentException if the text is not such an object
+     */
+    public static Map<String, String> parseObject(String json) {
+        Parser p = new Parser(json);
+        Map<String, String> members = new LinkedHashMap<>();
+        p.expect('{');
+        if (!p.consume('}')) {
+            do {
+                String key = p.string();
+                p.expect(':');
+                members.put(key, p.string());
+            } while (p.consume(','));
+            p.expect('}');
+        }
+        p.skipWhitespace();
+        if (p.pos != json.length()) throw new IllegalArgumentException("Trailing characters after JSON object");
+        return members;
+    }
+
+    /**
+     * Cursor over the JSON text.
+     */
+    private static final class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if (!consume(c)) throw new IllegalArgumentException("Expected '" + c + "' at position " + pos);
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) break;
+                char e = text.charAt(pos++);
+                switch (e) {
+                    case '"', '\\', '/' -> sb.append(e);
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'u' -> {
+                        if (pos + 4 > text.length()) throw new IllegalArgumentException("Bad unicode escape");
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                    }
+                    default -> throw new IllegalArgumentException("Bad escape '\\" + e + "'");
+                }
+            }
+            throw new IllegalArgumentException("Unterminated string");
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.khan.fazal.intern.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative values, such as latencies in nanoseconds,
+ * with a bounded relative error, in the manner of HdrHistogram.
+ *
+ * Values below 8 get a bucket each. Above that, every power of two is
+ * split into 8 equal sub-buckets, so a value is reported at most 12.5%
+ * above its true value, and all of {@code long}'s range fits in 488
+ * buckets. Recording increments one bucket with an atomic add and never
+ * locks, so any number of threads can record concurrently; reads see a
+ * recent, not necessarily consistent, state.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value; negative values count as 0.
+     *
+     * @param value the value to record
+     */
+    public void record(long value) {
+        long v = Math.max(value, 0);
+        counts.incrementAndGet(bucketOf(v));
+        count.increment();
+        sum.add(v);
+        long m = max.get();
+        while (v > m && !max.compareAndSet(m, v)) {
+            m = max.get();
+        }
+    }
+
+    /**
+     * Returns the number of recorded values.
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the mean of the recorded values, or 0 if there are none.
+     */
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Returns the largest recorded value, or 0 if there is none.
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Returns the value below or at which the given fraction of the
+     * recorded values fall, rounded up to the top of its bucket.
+     *
+     * @param fraction the fraction, such as 0.99 for the 99th percentile
+     * @return the percentile value, or 0 if nothing was recorded
+     */
+    public long percentile(double fraction) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                long top = i + 1 < BUCKETS ? lowestOf(i + 1) - 1 : Long.MAX_VALUE;
+                return Math.min(top, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Returns the bucket of a non-negative value.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the smallest value falling into a bucket.
+     */
+    static long lowestOf(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exp = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exp - SUB_BITS);
+    }
+}
@@ -0,0 +1,302 @@
+package com.khan.fazal.intern.utils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide registry of operation timers, counters and gauges.
+ *
+ * Timers record latencies into a {@link LatencyHistogram}, counters add
+ * into a {@link LongAdder}, and gauges read a value such as an index size
+ * from its owner when asked, without keeping the owner alive. All of them
+ * are published as attributes of the {@code com.khan.fazal.intern:type=Metrics}
+ * MBean, registered shortly after startup, and
+ * {@code -Dcontacts.metrics.dump=<seconds>} prints {@link #report()} to the
+ * console at that interval.
+ *
+ * Metrics are on by default; {@code -Dcontacts.metrics=false} turns them
+ * off. The flag is a constant, so with metrics off the JIT drops the
+ * recording code from the hot paths entirely.
+ */
+public final class Metrics {
+
+    /**
+     * Whether metrics are recorded, from the {@code contacts.metrics} property.
+     */
+    public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("contacts.metrics"));
+
+    private static final Map<String, Timer> TIMERS = new ConcurrentSkipListMap<>();
+    private static final Map<String, Counter> COUNTERS = new ConcurrentSkipListMap<>();
+    private static final Map<String, Gauge<?>> GAUGES = new ConcurrentHashMap<>();
+    private static final long PUBLISH_DELAY_MS = 2000;
+
+    static {
+        if (ENABLED) {
+            ScheduledExecutorService publisher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "metrics");
+                t.setDaemon(true);
+                return t;
+            });
+            // starting the platform MBean server costs a few hundred ms of CPU, which
+            // short-lived commands would pay for nothing, so publish after startup
+            publisher.schedule(Metrics::registerMBean, PUBLISH_DELAY_MS, TimeUnit.MILLISECONDS);
+            long seconds = Long.getLong("contacts.metrics.dump", 0);
+            if (seconds > 0) {
+                publisher.scheduleAtFixedRate(() -> System.out.print(report()), seconds, seconds, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private Metrics() {
+    }
+
+    private static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    new MetricsMBean(), new ObjectName("com.khan.fazal.intern:type=Metrics"));
+        } catch (JMException e) {
+            System.out.println("Could not register metrics MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Times one operation, see {@link #start()}.
+     */
+    public static final class Timer {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private Timer() {
+        }
+
+        /**
+         * Records the time elapsed since {@code start}.
+         *
+         * @param start the value {@link Metrics#start()} returned when the
+         *              operation began
+         */
+        public void stop(long start) {
+            if (ENABLED) histogram.record(System.nanoTime() - start);
+        }
+
+        /**
+         * Returns the recorded latencies in nanoseconds.
+         */
+        public LatencyHistogram histogram() {
+            return histogram;
+        }
+    }
+
+    /**
+     * A running total, such as a number of bytes written.
+     */
+    public static final class Counter {
+        private final LongAdder total = new LongAdder();
+
+        private Counter() {
+        }
+
+        /**
+         * Adds to the total.
+         *
+         * @param n the amount to add
+         */
+        public void add(long n) {
+            if (ENABLED) total.add(n);
+        }
+
+        /**
+         * Adds one to the total.
+         */
+        public void increment() {
+            add(1);
+        }
+
+        /**
+         * Returns the current total.
+         */
+        public long get() {
+            return total.sum();
+        }
+    }
+
+    /**
+     * A value read from an owner that may be garbage collected.
+     */
+    private record Gauge<T>(WeakReference<T> owner, ToLongFunction<T> value) {
+
+        /**
+         * Returns the current value, or null once the owner is gone.
+         */
+        Long read() {
+            T o = owner.get();
+            return o == null ? null : value.applyAsLong(o);
+        }
+    }
+
+    /**
+     * Returns the timer of the given name, creating it on first use.
+     * Callers keep it in a static field.
+     *
+     * @param name the operation name, such as {@code service.search}
+     * @return the timer
+     */
+    public static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, k -> new Timer());
+    }
+
+    /**
+     * Returns the counter of the given name, creating it on first use.
+     * Callers keep it in a static field.
+     *
+     * @param name the counter name, such as {@code io.write.bytes}
+     * @return the counter
+     */
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, k -> new Counter());
+    }
+
+    /**
+     * Publishes a value read from {@code owner}, replacing any earlier
+     * gauge of that name. The gauge does not keep the owner reachable and
+     * disappears once the owner is collected.
+     *
+     * @param name  the gauge name, such as {@code index.tokens}
+     * @param owner the object the value is read from
+     * @param value reads the value from the owner
+     */
+    public static <T> void gauge(String name, T owner, ToLongFunction<T> value) {
+        if (ENABLED) GAUGES.put(name, new Gauge<>(new WeakReference<>(owner), value));
+    }
+
+    /**
+     * Returns the start time of an operation to pass to {@link Timer#stop},
+     * or 0 when metrics are off.
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Formats every timer, counter and gauge that has a value, one per
+     * line, with latencies in microseconds.
+     *
+     * @return the report, empty when metrics are off
+     */
+    public static String report() {
+        if (!ENABLED) return "";
+        StringBuilder out = new StringBuilder("Metrics:\n");
+        TIMERS.forEach((name, timer) -> {
+            LatencyHistogram h = timer.histogram();
+            if (h.count() == 0) return;
+            out.append(String.format("  %-24s count=%d mean=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus%n",
+                    name, h.count(), h.mean() / 1e3, h.percentile(0.5) / 1e3, h.percentile(0.99) / 1e3,
+                    h.percentile(0.999) / 1e3, h.max() / 1e3));
+        });
+        COUNTERS.forEach((name, counter) -> out.append(String.format("  %-24s %d%n", name, counter.get())));
+        new ConcurrentSkipListMap<>(GAUGES).forEach((name, gauge) -> {
+            Long value = gauge.read();
+            if (value != null) out.append(String.format("  %-24s %d%n", name, value));
+        });
+        return out.toString();
+    }
+
+    /**
+     * Returns the current value of every metric as a flat map, timers
+     * contributing {@code .count}, {@code .meanMicros}, {@code .p50Micros},
+     * {@code .p99Micros}, {@code .p999Micros} and {@code .maxMicros}.
+     */
+    private static Map<String, Object> values() {
+        Map<String, Object> values = new ConcurrentSkipListMap<>();
+        TIMERS.forEach((name, timer) -> {
+            LatencyHistogram h = timer.histogram();
+            values.put(name + ".count", h.count());
+            values.put(name + ".meanMicros", h.mean() / 1e3);
+            values.put(name + ".p50Micros", h.percentile(0.5) / 1e3);
+            values.put(name + ".p99Micros", h.percentile(0.99) / 1e3);
+            values.put(name + ".p999Micros", h.percentile(0.999) / 1e3);
+            values.put(name + ".maxMicros", h.max() / 1e3);
+        });
+        COUNTERS.forEach((name, counter) -> values.put(name, counter.get()));
+        GAUGES.forEach((name, gauge) -> {
+            Long value = gauge.read();
+            if (value == null) {
+                GAUGES.remove(name, gauge);
+            } else {
+                values.put(name, value);
+            }
+        });
+        return values;
+    }
+
+    /**
+     * Exposes {@link #values()} as read-only MBean attributes, plus a
+     * {@code report} operation returning {@link #report()}.
+     */
+    private static final class MetricsMBean implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Object value = values().get(attribute);
+            if (value == null) throw new AttributeNotFoundException(attribute);
+            return value;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Object> values = values();
+            AttributeList list = new AttributeList();
+            for (String name : attributes) {
+                Object value = values.get(name);
+                if (value != null) list.add(new Attribute(name, value));
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            if (actionName.equals("report")) return report();
+            throw new UnsupportedOperationException(actionName);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            values().forEach((name, value) -> attributes.add(new MBeanAttributeInfo(
+                    name, value.getClass().getName(), name, true, false, false)));
+            MBeanOperationInfo report = new MBeanOperationInfo("report", "Formats all metrics",
+                    null, String.class.getName(), MBeanOperationInfo.INFO);
+            return new MBeanInfo(Metrics.class.getName(), "Contact book operation metrics",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null,
+                    new MBeanOperationInfo[] {report}, null);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.khan.fazal.intern.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A substring index over short strings such as phone numbers and email
+ * addresses.
+ *
+ * Every distinct substring of length 1 to {@value #N} of an indexed value
+ * gets a sorted posting list of contact IDs. A query of up to {@value #N}
+ * characters is answered exactly by a single posting list; a longer query
+ * intersects the posting lists of its overlapping {@value #N}-grams,
+ * smallest first, and the caller verifies the remaining candidates.
+ * Grams are packed into a {@code long} key, so no substrings are created.
+ */
+public class NGramIndex {
+    private static final int N = 3;
+    private static final int[] NONE = new int[0];
+
+    private final Map<Long, SortedIntList> postings = new HashMap<>();
+
+    /**
+     * Indexes all grams of the given value under the contact ID.
+     *
+     * @param value the string to index
+     * @param id    the ID of the contact
+     */
+    public void add(String value, int id) {
+        for (int len = 1; len <= N; len++) {
+            for (int i = 0; i + len <= value.length(); i++) {
+                postings.computeIfAbsent(key(value, i, len), k -> new SortedIntList()).add(id);
+            }
+        }
+    }
+
+    /**
+     * Removes the contact ID from all grams of the given value.
+     *
+     * @param value the string that was indexed
+     * @param id    the ID of the contact
+     */
+    public void remove(String value, int id) {
+        for (int len = 1; len <= N; len++) {
+            for (int i = 0; i + len <= value.length(); i++) {
+                Long key = key(value, i, len);
+                SortedIntList list = postings.get(key);
+                if (list != null && list.remove(id) && list.size() == 0) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns true if candidates for this query are exact matches and need
+     * no verification against the indexed value.
+     *
+     * @param query the substring being searched for
+     * @return true if the query is no longer than a gram
+     */
+    public static boolean isExact(String query) {
+        return query.length() <= N;
+    }
+
+    /**
+     * Returns the IDs of contacts whose value may contain the query, in
+     * ascending order. The result is exact when {@link #isExact} holds.
+     *
+     * @param query a non-empty substring to look up
+     * @return candidate contact IDs
+     */
+    public int[] candidates(String query) {
+        if (query.length() <= N) {
+            SortedIntList list = postings.get(key(query, 0, query.length()));
+            return list == null ? NONE : list.toArray();
+        }
+
+        int grams = query.length() - N + 1;
+        SortedIntList[] lists = new SortedIntList[grams];
+        for (int i = 0; i < grams; i++) {
+            lists[i] = postings.get(key(query, i, N));
+            if (lists[i] == null) return NONE;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size(), b.size()));
+
+        int[] result = lists[0].toArray();
+        for (int i = 1; i < lists.length && result.length > 0; i++) {
+            result = lists[i].intersect(result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of distinct grams in the index.
+     */
+    public int gramCount() {
+        return postings.size();
+    }
+
+    /**
+     * Packs {@code len} characters of {@code s} starting at {@code from}
+     * into a key, tagging it with the gram length.
+     */
+    private static long key(String s, int from, int len) {
+        long key = len;
+        for (int i = 0; i < len; i++) {
+            key = (key << 16) | s.charAt(from + i);
+        }
+        return key;
+    }
+}
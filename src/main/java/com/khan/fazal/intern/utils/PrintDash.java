@@ -1,11 +1,27 @@
 package com.khan.fazal.intern.utils;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * Utility class to print data in a formatted table.
+ *
+ * Rows are rendered straight from the caller's objects through a list of
+ * column extractors, so no copy of the data is built first. Column widths
+ * are either measured in one pass over the rows or supplied up front so a
+ * table can be streamed from an iterator. Output goes through a single
+ * large buffer and is flushed once per table.
  */
 public class PrintDash {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String NEWLINE = System.lineSeparator();
 
     /**
      * Prints the given rows as a formatted table.
@@ -13,53 +29,128 @@ public class PrintDash {
      * @param rows List of rows, where each row is a String array
      */
     public static void printTable(List<String[]> rows) {
-        int columnCount = rows.get(0).length;
-        int[] maxWidths = new int[columnCount];
+        String[] header = rows.get(0);
+        List<String[]> body = rows.subList(1, rows.size());
+        List<Function<String[], String>> columns = new ArrayList<>();
+        for (int i = 0; i < header.length; i++) {
+            int col = i;
+            columns.add(row -> col < row.length ? row[col] : "");
+        }
 
-        for (String[] row : rows) {
-            for (int i = 0; i < columnCount; i++) {
-                if (i < row.length) {
-                    maxWidths[i] = Math.max(maxWidths[i], row[i].trim().length());
-                }
-            }
+        try {
+            Writer out = stdout();
+            printTable(header, body.iterator(), columns, measure(header, body, columns), out);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+    }
 
-        printSeparator(maxWidths);
-        printRow(rows.get(0), maxWidths); // Header
-        printSeparator(maxWidths);
+    /**
+     * Returns a buffered writer over {@code System.out}. The caller must
+     * flush it when done, and should not close it.
+     *
+     * @return a writer to standard output
+     */
+    public static Writer stdout() {
+        return new BufferedWriter(new OutputStreamWriter(System.out), BUFFER_SIZE);
+    }
 
-        for (int i = 1; i < rows.size(); i++) {
-            printRow(rows.get(i), maxWidths);
+    /**
+     * Measures the exact width of each column in one pass over the rows.
+     *
+     * @param header  the column headings
+     * @param rows    the rows to measure
+     * @param columns extracts each column's text from a row
+     * @return the width of each column
+     */
+    public static <T> int[] measure(String[] header, Iterable<T> rows, List<Function<T, String>> columns) {
+        int[] widths = headerWidths(header);
+        for (T row : rows) {
+            for (int i = 0; i < widths.length; i++) {
+                widths[i] = Math.max(widths[i], columns.get(i).apply(row).trim().length());
+            }
         }
-
-        printSeparator(maxWidths);
+        return widths;
     }
 
     /**
-     * Prints a single row with padding.
+     * Prints a table with the given column widths, streaming the rows.
+     * Cells wider than their column are truncated and end in "...".
+     * The writer is not flushed.
      *
-     * @param columns Array of column values
-     * @param widths  Max widths for each column
+     * @param header  the column headings
+     * @param rows    the rows to print
+     * @param columns extracts each column's text from a row
+     * @param widths  the width of each column
+     * @param out     destination of the table
+     * @throws IOException if writing fails
      */
-    private static void printRow(String[] columns, int[] widths) {
-        System.out.print("|");
+    public static <T> void printTable(String[] header, Iterator<T> rows, List<Function<T, String>> columns,
+                                      int[] widths, Writer out) throws IOException {
+        String separator = separator(widths);
+        String padding = " ".repeat(max(widths));
+
+        out.write(separator);
+        out.write('|');
         for (int i = 0; i < widths.length; i++) {
-            String cell = i < columns.length ? columns[i].trim() : "";
-            System.out.printf(" %-" + widths[i] + "s |", cell);
+            writeCell(out, header[i], widths[i], padding);
         }
-        System.out.println();
+        out.write(NEWLINE);
+        out.write(separator);
+
+        while (rows.hasNext()) {
+            T row = rows.next();
+            out.write('|');
+            for (int i = 0; i < widths.length; i++) {
+                writeCell(out, columns.get(i).apply(row), widths[i], padding);
+            }
+            out.write(NEWLINE);
+        }
+        out.write(separator);
     }
 
     /**
-     * Prints a separator line based on column widths.
-     *
-     * @param widths Max widths for each column
+     * Writes a single cell, padded or truncated to the column width,
+     * followed by the column border.
      */
-    private static void printSeparator(int[] widths) {
-        System.out.print("+");
+    private static void writeCell(Writer out, String cell, int width, String padding) throws IOException {
+        String text = cell.trim();
+        out.write(' ');
+        if (text.length() <= width) {
+            out.write(text);
+            out.write(padding, 0, width - text.length());
+        } else if (width >= 3) {
+            out.write(text, 0, width - 3);
+            out.write("...");
+        } else {
+            out.write(text, 0, width);
+        }
+        out.write(" |");
+    }
+
+    /**
+     * Builds the separator line for the given column widths.
+     */
+    private static String separator(int[] widths) {
+        StringBuilder sb = new StringBuilder("+");
         for (int width : widths) {
-            System.out.print("-".repeat(width + 2) + "+");
+            sb.append("-".repeat(width + 2)).append('+');
+        }
+        return sb.append(NEWLINE).toString();
+    }
+
+    private static int[] headerWidths(String[] header) {
+        int[] widths = new int[header.length];
+        for (int i = 0; i < header.length; i++) {
+            widths[i] = header[i].trim().length();
         }
-        System.out.println();
+        return widths;
+    }
+
+    private static int max(int[] values) {
+        int max = 0;
+        for (int v : values) max = Math.max(max, v);
+        return max;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,97 @@
+package com.khan.fazal.intern.utils;
+
+import java.util.Arrays;
+
+/**
+ * A growable, sorted set of ints backed by a primitive array, used as a
+ * posting list of contact IDs by the search indexes.
+ *
+ * Contact IDs are handed out in increasing order, so adds are almost
+ * always appends; out-of-order adds fall back to a binary insert.
+ */
+public class SortedIntList {
+    private static final int[] EMPTY = new int[0];
+
+    private int[] values = EMPTY;
+    private int size;
+
+    /**
+     * Adds a value, keeping the list sorted. Duplicates are ignored.
+     *
+     * @param value the value to add
+     */
+    public void add(int value) {
+        int pos = size;
+        if (size > 0 && values[size - 1] >= value) {
+            pos = Arrays.binarySearch(values, 0, size, value);
+            if (pos >= 0) return;
+            pos = -(pos + 1);
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size + (size >> 1)));
+        }
+        System.arraycopy(values, pos, values, pos + 1, size - pos);
+        values[pos] = value;
+        size++;
+    }
+
+    /**
+     * Removes a value if present.
+     *
+     * @param value the value to remove
+     * @return true if the value was present
+     */
+    public boolean remove(int value) {
+        int pos = Arrays.binarySearch(values, 0, size, value);
+        if (pos < 0) return false;
+        System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+        size--;
+        return true;
+    }
+
+    /**
+     * Returns the number of values in the list.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a copy of the values in ascending order.
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Intersects this list with a sorted array, returning the common values
+     * in ascending order. Each value of the (usually shorter) array is
+     * located by galloping forward through this list.
+     *
+     * @param other sorted values to intersect with
+     * @return the values present in both
+     */
+    public int[] intersect(int[] other) {
+        int[] out = new int[Math.min(size, other.length)];
+        int n = 0;
+        int lo = 0;
+        for (int value : other) {
+            int step = 1;
+            int hi = lo;
+            while (hi < size && values[hi] < value) {
+                lo = hi + 1;
+                hi += step;
+                step <<= 1;
+            }
+            int pos = Arrays.binarySearch(values, lo, Math.min(hi + 1, size), value);
+            if (pos >= 0) {
+                out[n++] = value;
+                lo = pos + 1;
+            } else {
+                lo = -(pos + 1);
+            }
+            if (lo >= size) break;
+        }
+        return Arrays.copyOf(out, n);
+    }
+}
@@ -0,0 +1,216 @@
+package com.khan.fazal.intern.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Word index over contact names, for finding contacts by surname or
+ * middle name as well as by the start of their full name.
+ *
+ * Each lower-cased name is split into words at whitespace, and every word
+ * maps to a {@link SortedIntList} of the contact IDs whose name contains
+ * it. The words are kept sorted, so the words starting with a query word
+ * form one contiguous range. A query of several words matches contacts
+ * having, for every query word, some name word starting with it; the ID
+ * lists of the query words are intersected from the smallest up.
+ */
+public class TokenIndex {
+    private static final int[] NONE = new int[0];
+
+    private final TreeMap<String, SortedIntList> postings = new TreeMap<>();
+
+    /**
+     * Splits a lower-cased string into its whitespace-separated words.
+     *
+     * @param lower the string to split
+     * @return the non-empty words, in order
+     */
+    public static List<String> tokens(String lower) {
+        List<String> tokens = new ArrayList<>(4);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean space = i == lower.length() || isSpace(lower.charAt(i));
+            if (space && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            } else if (!space && start < 0) {
+                start = i;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Tells whether every word of the query starts some word of the name,
+     * which is exactly when {@link #search} returns the name's ID.
+     *
+     * @param lowerName  the lower-cased name
+     * @param lowerQuery the lower-cased query
+     * @return true if the name matches; false for a query without words
+     */
+    public static boolean matches(String lowerName, String lowerQuery) {
+        List<String> queryTokens = tokens(lowerQuery);
+        if (queryTokens.isEmpty()) return false;
+        List<String> nameTokens = tokens(lowerName);
+        for (String q : queryTokens) {
+            boolean found = false;
+            for (String t : nameTokens) {
+                if (t.startsWith(q)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Indexes every word of the name under the contact ID.
+     *
+     * @param name the contact name
+     * @param id   the ID of the contact
+     */
+    public void add(String name, int id) {
+        for (String token : tokens(name.toLowerCase())) {
+            postings.computeIfAbsent(token, k -> new SortedIntList()).add(id);
+        }
+    }
+
+    /**
+     * Removes the contact ID from every word of the name.
+     *
+     * @param name the name that was indexed
+     * @param id   the ID of the contact
+     */
+    public void remove(String name, int id) {
+        for (String token : tokens(name.toLowerCase())) {
+            SortedIntList list = postings.get(token);
+            if (list != null && list.remove(id) && list.size() == 0) {
+                postings.remove(token);
+            }
+        }
+    }
+
+    /**
+     * Returns the IDs of contacts matching every word of the query, in
+     * ascending order.
+     *
+     * @param lowerQuery the lower-cased query
+     * @return matching contact IDs
+     */
+    public int[] search(String lowerQuery) {
+        List<String> tokens = tokens(lowerQuery);
+        if (tokens.isEmpty()) return NONE;
+
+        List<Collection<SortedIntList>> ranges = new ArrayList<>(tokens.size());
+        List<Integer> sizes = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            Collection<SortedIntList> range = withPrefix(token).values();
+            int size = 0;
+            for (SortedIntList list : range) {
+                size += list.size();
+            }
+            if (size == 0) return NONE;
+            ranges.add(range);
+            sizes.add(size);
+        }
+
+        Integer[] order = new Integer[tokens.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(sizes.get(a), sizes.get(b)));
+
+        int[] result = union(ranges.get(order[0]));
+        for (int i = 1; i < order.length && result.length > 0; i++) {
+            result = intersect(result, ranges.get(order[i]), sizes.get(order[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of distinct words in the index.
+     */
+    public int tokenCount() {
+        return postings.size();
+    }
+
+    private SortedMap<String, SortedIntList> withPrefix(String prefix) {
+        return postings.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    /**
+     * Merges the ID lists of a word range into one ascending array.
+     */
+    private static int[] union(Collection<SortedIntList> lists) {
+        if (lists.size() == 1) return lists.iterator().next().toArray();
+
+        int total = 0;
+        for (SortedIntList list : lists) {
+            total += list.size();
+        }
+        int[] all = new int[total];
+        int n = 0;
+        for (SortedIntList list : lists) {
+            int[] ids = list.toArray();
+            System.arraycopy(ids, 0, all, n, ids.length);
+            n += ids.length;
+        }
+        return dedupe(all, n);
+    }
+
+    /**
+     * Keeps the candidates found in any list of a word range. Candidates
+     * are galloped through each list while that is cheaper than merging
+     * the whole range.
+     */
+    private static int[] intersect(int[] candidates, Collection<SortedIntList> lists, int rangeSize) {
+        if ((long) candidates.length * lists.size() > rangeSize) {
+            int[] range = union(lists);
+            int[] out = new int[Math.min(candidates.length, range.length)];
+            int n = 0;
+            for (int i = 0, j = 0; i < candidates.length && j < range.length; ) {
+                if (candidates[i] < range[j]) {
+                    i++;
+                } else if (candidates[i] > range[j]) {
+                    j++;
+                } else {
+                    out[n++] = candidates[i++];
+                    j++;
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+
+        int[] found = new int[candidates.length];
+        int n = 0;
+        for (SortedIntList list : lists) {
+            int[] common = list.intersect(candidates);
+            if (n + common.length > found.length) found = Arrays.copyOf(found, n + common.length);
+            System.arraycopy(common, 0, found, n, common.length);
+            n += common.length;
+        }
+        return dedupe(found, n);
+    }
+
+    /**
+     * Sorts the first {@code n} values and drops duplicates.
+     */
+    private static int[] dedupe(int[] values, int n) {
+        Arrays.sort(values, 0, n);
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (m == 0 || values[i] != values[m - 1]) values[m++] = values[i];
+        }
+        return Arrays.copyOf(values, m);
+    }
+
+    private static boolean isSpace(char c) {
+        return Character.isWhitespace(c) || Character.isSpaceChar(c);
+    }
+}
@@ -1,84 +1,470 @@
 package com.khan.fazal.intern.utils;
 
-import java.util.*;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
- * A Trie (prefix tree) data structure used for efficient
- * prefix-based searching of contact names.
+ * A compressed Trie (radix tree) used for efficient prefix-based
+ * searching of contact names.
+ *
+ * Names are lower-cased and stored once, split across the edge labels of
+ * the tree. Each node keeps its children in a sorted {@code char[]} of
+ * first characters alongside a parallel child array, the contact IDs of
+ * names ending exactly at that node, and the number of IDs in its whole
+ * subtree. A prefix search walks to the node covering the prefix and
+ * copies out the IDs of that subtree in name order, sized up front from
+ * the subtree count.
+ *
+ * A fuzzy search walks the tree carrying one row of an edit-distance table
+ * per character, so each shared prefix is compared with the query once.
+ * Subtrees are skipped as soon as every entry of the row exceeds the
+ * allowed number of edits, and a subtree is copied out whole once no
+ * longer prefix can bring its names closer to the query.
+ *
+ * Inserts, deletes, prefix and fuzzy searches are timed as
+ * {@code trie.insert}, {@code trie.delete}, {@code trie.prefix} and
+ * {@code trie.fuzzy}, see {@link Metrics}.
  */
 public class Trie {
+    private static final int[] NO_IDS = new int[0];
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Metrics.Timer INSERT_TIMER = Metrics.timer("trie.insert");
+    private static final Metrics.Timer DELETE_TIMER = Metrics.timer("trie.delete");
+    private static final Metrics.Timer PREFIX_TIMER = Metrics.timer("trie.prefix");
+    private static final Metrics.Timer FUZZY_TIMER = Metrics.timer("trie.fuzzy");
 
     /**
      * Represents each node in the Trie.
-     * Contains a map of children and a list of contact names
-     * that pass through this node.
+     * Holds the label of the edge leading into it, its children keyed by
+     * first character, and the contact IDs of names ending here.
      */
-    private class TrieNode {
-        Map<Character, TrieNode> children = new HashMap<>();
-        List<String> contactNames = new ArrayList<>();
+    private static final class Node {
+        char[] label;
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        int[] ids = NO_IDS;
+        int idCount;
+        int size;
+
+        Node(char[] label) {
+            this.label = label;
+        }
+
+        int childIndex(char ch) {
+            return Arrays.binarySearch(keys, ch);
+        }
+
+        void addChild(Node child) {
+            int pos = -(childIndex(child.label[0]) + 1);
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, pos);
+            System.arraycopy(children, 0, newChildren, 0, pos);
+            newKeys[pos] = child.label[0];
+            newChildren[pos] = child;
+            System.arraycopy(keys, pos, newKeys, pos + 1, keys.length - pos);
+            System.arraycopy(children, pos, newChildren, pos + 1, children.length - pos);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        void removeChild(int pos) {
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, pos);
+            System.arraycopy(children, 0, newChildren, 0, pos);
+            System.arraycopy(keys, pos + 1, newKeys, pos, keys.length - pos - 1);
+            System.arraycopy(children, pos + 1, newChildren, pos, children.length - pos - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        void addId(int id) {
+            if (idCount == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(1, idCount * 2));
+            }
+            ids[idCount++] = id;
+        }
+
+        boolean removeId(int id) {
+            for (int i = 0; i < idCount; i++) {
+                if (ids[i] == id) {
+                    System.arraycopy(ids, i + 1, ids, i, idCount - i - 1);
+                    if (--idCount == 0) ids = NO_IDS;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Absorbs this node's only child, concatenating the edge labels.
+         */
+        void mergeWithOnlyChild() {
+            Node child = children[0];
+            char[] merged = Arrays.copyOf(label, label.length + child.label.length);
+            System.arraycopy(child.label, 0, merged, label.length, child.label.length);
+            label = merged;
+            keys = child.keys;
+            children = child.children;
+            ids = child.ids;
+            idCount = child.idCount;
+        }
     }
 
-    private final TrieNode root = new TrieNode();
+    private final Node root = new Node(NO_KEYS);
+
+    /**
+     * IDs found by {@link #searchFuzzy}, in name order, each with the
+     * number of edits between the query and the closest prefix of its name.
+     *
+     * @param ids       the contact IDs
+     * @param distances the edit distance of each ID
+     * @param complete  false if the search ran out of time and the matches
+     *                  only cover the names up to where it stopped
+     */
+    public record FuzzyMatches(int[] ids, int[] distances, boolean complete) {}
 
     /**
-     * Inserts a contact name into the Trie.
-     * Maintains a list of contact names at each node for quick prefix lookup.
+     * Inserts a contact name into the Trie under the given contact ID.
      *
      * @param name the contact name to insert
+     * @param id   the ID of the contact
      */
-    public void insert(String name) {
-        TrieNode current = root;
-        for (char ch : name.toLowerCase().toCharArray()) {
-            current = current.children.computeIfAbsent(ch, c -> new TrieNode());
-            current.contactNames.add(name);
+    public void insert(String name, int id) {
+        long start = Metrics.start();
+        insert(name.toLowerCase().toCharArray(), id);
+        INSERT_TIMER.stop(start);
+    }
+
+    private void insert(char[] key, int id) {
+        Node node = root;
+        node.size++;
+        int i = 0;
+
+        while (i < key.length) {
+            int pos = node.childIndex(key[i]);
+            if (pos < 0) {
+                Node leaf = new Node(Arrays.copyOfRange(key, i, key.length));
+                leaf.addId(id);
+                leaf.size = 1;
+                node.addChild(leaf);
+                return;
+            }
+
+            Node child = node.children[pos];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length) {
+                Node split = new Node(Arrays.copyOf(child.label, common));
+                child.label = Arrays.copyOfRange(child.label, common, child.label.length);
+                split.keys = new char[]{child.label[0]};
+                split.children = new Node[]{child};
+                split.size = child.size;
+                node.children[pos] = split;
+                child = split;
+            }
+            child.size++;
+            node = child;
+            i += common;
         }
+        node.addId(id);
     }
 
     /**
-     * Deletes a contact name from the Trie.
-     * Removes the name from nodes along the path and prunes nodes if necessary.
+     * Deletes a contact ID stored under the given name from the Trie,
+     * pruning empty nodes and re-merging single-child chains.
      *
      * @param name the contact name to delete
+     * @param id   the ID of the contact
+     * @return true if the ID was found and removed
      */
-    public void delete(String name) {
-        delete(root, name.toLowerCase(), 0);
+    public boolean delete(String name, int id) {
+        long start = Metrics.start();
+        boolean deleted = delete(name.toLowerCase().toCharArray(), id);
+        DELETE_TIMER.stop(start);
+        return deleted;
+    }
+
+    private boolean delete(char[] key, int id) {
+        Node[] path = new Node[key.length + 1];
+        int[] slots = new int[key.length + 1];
+        int depth = 0;
+        Node node = root;
+        int i = 0;
+
+        while (i < key.length) {
+            int pos = node.childIndex(key[i]);
+            if (pos < 0) return false;
+            Node child = node.children[pos];
+            if (commonPrefix(child.label, key, i) != child.label.length) return false;
+            path[depth] = node;
+            slots[depth++] = pos;
+            node = child;
+            i += child.label.length;
+        }
+        if (!node.removeId(id)) return false;
+
+        for (int d = 0; d < depth; d++) {
+            path[d].size--;
+        }
+        node.size--;
+
+        if (node != root && node.idCount == 0) {
+            Node parent = path[depth - 1];
+            if (node.children.length == 0) {
+                parent.removeChild(slots[depth - 1]);
+                if (parent != root && parent.idCount == 0 && parent.children.length == 1) {
+                    parent.mergeWithOnlyChild();
+                }
+            } else if (node.children.length == 1) {
+                node.mergeWithOnlyChild();
+            }
+        }
+        return true;
     }
 
     /**
-     * Helper method for deleting a name recursively.
+     * Searches and returns the IDs of all contacts whose name starts with
+     * the given prefix, in name order.
      *
-     * @param node the current Trie node
-     * @param name the name to delete
-     * @param index current character index in the name
-     * @return true if the current branch can be pruned; false otherwise
+     * @param prefix the prefix to search for
+     * @return IDs of the contacts that match the prefix
      */
-    private boolean delete(TrieNode node, String name, int index) {
-        if (index == name.length()) return true;
+    public int[] searchByPrefix(String prefix) {
+        long start = Metrics.start();
+        int[] ids = searchByPrefix(prefix.toLowerCase().toCharArray());
+        PREFIX_TIMER.stop(start);
+        return ids;
+    }
 
-        char ch = name.charAt(index);
-        TrieNode child = node.children.get(ch);
-        if (child == null) return false;
+    private int[] searchByPrefix(char[] key) {
+        Node node = root;
+        int i = 0;
 
-        child.contactNames.remove(name);
+        while (i < key.length) {
+            int pos = node.childIndex(key[i]);
+            if (pos < 0) return NO_IDS;
+            node = node.children[pos];
+            int len = Math.min(node.label.length, key.length - i);
+            for (int k = 0; k < len; k++) {
+                if (node.label[k] != key[i + k]) return NO_IDS;
+            }
+            i += len;
+        }
+
+        int[] out = new int[node.size];
+        collect(node, out, 0);
+        return out;
+    }
 
-        if (delete(child, name, index + 1) && child.contactNames.isEmpty()) {
-            node.children.remove(ch);
+    /**
+     * Searches the IDs of all contacts whose name has a prefix within
+     * {@code maxEdits} insertions, deletions, substitutions or adjacent
+     * transpositions of the query (optimal string alignment distance).
+     * Stops early, marking the result incomplete, once the deadline
+     * passes.
+     *
+     * @param query         the text to match name prefixes against
+     * @param maxEdits      the largest edit distance accepted
+     * @param deadlineNanos {@link System#nanoTime()} value to stop at
+     * @return the matching IDs in name order, with their distances
+     */
+    public FuzzyMatches searchFuzzy(String query, int maxEdits, long deadlineNanos) {
+        long start = Metrics.start();
+        FuzzySearch search = new FuzzySearch(query.toLowerCase().toCharArray(), maxEdits, deadlineNanos);
+        search.descend(root, 0, search.rows[0][search.query.length]);
+        FUZZY_TIMER.stop(start);
+        return new FuzzyMatches(Arrays.copyOf(search.ids, search.count),
+                Arrays.copyOf(search.distances, search.count), !search.timedOut);
+    }
+
+    /**
+     * State of one fuzzy search: the edit-distance rows of the current
+     * path, indexed by depth, and the matches collected so far.
+     */
+    private static final class FuzzySearch {
+        final char[] query;
+        final int maxEdits;
+        final long deadline;
+        int[][] rows = new int[16][];
+        char[] path = new char[16];
+        int[] ids = new int[16];
+        int[] distances = new int[16];
+        int count;
+        int visited;
+        boolean timedOut;
+
+        FuzzySearch(char[] query, int maxEdits, long deadline) {
+            this.query = query;
+            this.maxEdits = maxEdits;
+            this.deadline = deadline;
+            rows[0] = new int[query.length + 1];
+            for (int j = 0; j <= query.length; j++) {
+                rows[0][j] = j;
+            }
+        }
+
+        /**
+         * Extends the path through the node's label, then visits its
+         * children.
+         *
+         * @param node  the node to enter
+         * @param depth the path length before the node's label
+         * @param best  the smallest distance of the query to any prefix so far
+         */
+        void descend(Node node, int depth, int best) {
+            if ((++visited & 255) == 0 && System.nanoTime() > deadline) timedOut = true;
+            if (timedOut) return;
+
+            for (char c : node.label) {
+                int min = step(++depth, c);
+                best = Math.min(best, rows[depth][query.length]);
+                if (best <= maxEdits && min >= best) {
+                    emitSubtree(node, best);
+                    return;
+                }
+                if (min > maxEdits && best > maxEdits) return;
+            }
+
+            if (best <= maxEdits) emit(node.ids, node.idCount, best);
+            for (Node child : node.children) {
+                descend(child, depth, best);
+            }
+        }
+
+        /**
+         * Computes the row for a path of {@code depth} characters ending in
+         * {@code c}.
+         *
+         * @return the smallest entry of the row, which no longer path can
+         *         go below
+         */
+        int step(int depth, char c) {
+            if (depth == rows.length) {
+                rows = Arrays.copyOf(rows, depth * 2);
+                path = Arrays.copyOf(path, depth * 2);
+            }
+            path[depth - 1] = c;
+            int[] prev = rows[depth - 1];
+            int[] row = rows[depth];
+            if (row == null) row = rows[depth] = new int[query.length + 1];
+
+            row[0] = depth;
+            int min = depth;
+            for (int j = 1; j <= query.length; j++) {
+                int d = Math.min(Math.min(prev[j], row[j - 1]) + 1,
+                        prev[j - 1] + (query[j - 1] == c ? 0 : 1));
+                if (depth > 1 && j > 1 && query[j - 1] == path[depth - 2] && query[j - 2] == c) {
+                    d = Math.min(d, rows[depth - 2][j - 2] + 1);
+                }
+                row[j] = d;
+                min = Math.min(min, d);
+            }
+            return min;
+        }
+
+        void emitSubtree(Node node, int distance) {
+            emit(node.ids, node.idCount, distance);
+            for (Node child : node.children) {
+                emitSubtree(child, distance);
+            }
+        }
+
+        void emit(int[] from, int n, int distance) {
+            if (count + n > ids.length) {
+                int capacity = Math.max(count + n, ids.length * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                distances = Arrays.copyOf(distances, capacity);
+            }
+            System.arraycopy(from, 0, ids, count, n);
+            Arrays.fill(distances, count, count + n, distance);
+            count += n;
+        }
+    }
+
+    /**
+     * Returns the number of names stored in the Trie.
+     */
+    public int size() {
+        return root.size;
+    }
+
+    /**
+     * Copies the IDs of the subtree rooted at {@code node} into {@code out}.
+     */
+    private static int collect(Node node, int[] out, int at) {
+        System.arraycopy(node.ids, 0, out, at, node.idCount);
+        at += node.idCount;
+        for (Node child : node.children) {
+            at = collect(child, out, at);
         }
-        return node.children.isEmpty();
+        return at;
+    }
+
+    private static int commonPrefix(char[] label, char[] key, int from) {
+        int len = Math.min(label.length, key.length - from);
+        int i = 0;
+        while (i < len && label[i] == key[from + i]) i++;
+        return i;
     }
 
     /**
-     * Searches and returns all contact names starting with the given prefix.
+     * Serializes the Trie in pre-order. Each node is written as its label
+     * length and characters, its ID count and IDs, and its child count,
+     * followed by its children.
      *
-     * @param prefix the prefix to search for
-     * @return list of contact names that match the prefix
+     * @param out destination stream
+     * @throws IOException if writing fails
      */
-    public List<String> searchByPrefix(String prefix) {
-        TrieNode current = root;
-        for (char ch : prefix.toLowerCase().toCharArray()) {
-            current = current.children.get(ch);
-            if (current == null) return Collections.emptyList();
+    public void writeTo(DataOutput out) throws IOException {
+        writeNode(out, root);
+    }
+
+    private static void writeNode(DataOutput out, Node node) throws IOException {
+        out.writeShort(node.label.length);
+        for (char c : node.label) out.writeChar(c);
+        out.writeInt(node.idCount);
+        for (int i = 0; i < node.idCount; i++) out.writeInt(node.ids[i]);
+        out.writeInt(node.children.length);
+        for (Node child : node.children) writeNode(out, child);
+    }
+
+    /**
+     * Rebuilds a Trie previously written with {@link #writeTo}.
+     *
+     * @param in buffer positioned at the start of the serialized Trie
+     * @return the rebuilt Trie
+     */
+    public static Trie readFrom(ByteBuffer in) {
+        Trie trie = new Trie();
+        readNode(in, trie.root);
+        return trie;
+    }
+
+    private static void readNode(ByteBuffer in, Node node) {
+        char[] label = new char[Short.toUnsignedInt(in.getShort())];
+        for (int i = 0; i < label.length; i++) label[i] = in.getChar();
+        node.label = label;
+
+        node.idCount = in.getInt();
+        node.ids = node.idCount == 0 ? NO_IDS : new int[node.idCount];
+        for (int i = 0; i < node.idCount; i++) node.ids[i] = in.getInt();
+        node.size = node.idCount;
+
+        int childCount = in.getInt();
+        if (childCount > 0) {
+            node.keys = new char[childCount];
+            node.children = new Node[childCount];
+            for (int i = 0; i < childCount; i++) {
+                Node child = new Node(NO_KEYS);
+                readNode(in, child);
+                node.keys[i] = child.label[0];
+                node.children[i] = child;
+                node.size += child.size;
+            }
         }
-        return current.contactNames;
     }
 }
@@ -2,15 +2,15 @@ package com.khan.fazal.intern.view;
 
 import com.khan.fazal.intern.model.Contact;
 import com.khan.fazal.intern.service.ContactService;
+import com.khan.fazal.intern.service.SearchSession;
 
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 
 /**
  * GUI view for the Contact Manager application.
@@ -18,13 +18,14 @@ import java.util.TimerTask;
  */
 public class ContactGUI extends JFrame {
     private final ContactService service = new ContactService();
-    private final DefaultTableModel tableModel;
+    private final transient SearchSession searchSession = new SearchSession(service);
+    private final ContactTableModel tableModel;
     private final JTable contactTable;
     private final JTextField searchField;
 
-    // Debounce variables
-    private Timer debounceTimer = new Timer();
-    private static final long DEBOUNCE_DELAY = 1000; // 1 second delay
+    // Debounced background search
+    private final transient SearchPipeline searchPipeline =
+            new SearchPipeline(this::runSearch, this::updateTable);
 
     /**
      * Initializes the GUI components, sets up layout,
@@ -44,7 +45,7 @@ public class ContactGUI extends JFrame {
         add(topPanel, BorderLayout.NORTH);
 
         // Center panel: Contact table
-        tableModel = new DefaultTableModel(new String[]{"Name", "Phone", "Email"}, 0);
+        tableModel = new ContactTableModel();
         contactTable = new JTable(tableModel);
         JScrollPane scrollPane = new JScrollPane(contactTable);
         add(scrollPane, BorderLayout.CENTER);
@@ -82,7 +83,7 @@ public class ContactGUI extends JFrame {
         deleteBtn.addActionListener(e -> {
             int selectedRow = contactTable.getSelectedRow();
             if (selectedRow != -1) {
-                String name = (String) tableModel.getValueAt(selectedRow, 0);
+                String name = tableModel.getContactAt(selectedRow).getName();
                 service.deleteContact(name);
                 refreshTable();
             } else {
@@ -93,38 +94,40 @@ public class ContactGUI extends JFrame {
         // Refresh button action: Reload all contacts
         refreshBtn.addActionListener(e -> refreshTable());
 
+        // Window close: stop background searches and close the contact book
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                searchPipeline.shutdown();
+                service.close();
+            }
+        });
+
         refreshTable();
         setVisible(true);
     }
 
     /**
      * Debounced search method triggered on typing in search field.
-     * Delays search until typing pauses for a certain duration.
+     * Reads the query on the EDT and hands it to the search pipeline,
+     * which runs it in the background once typing pauses.
      */
     private void debouncedSearchAndUpdate() {
-        debounceTimer.cancel(); // Cancel existing scheduled task
-        debounceTimer = new Timer(); // Create a new timer instance
-
-        debounceTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                // Ensure UI updates happen on the Event Dispatch Thread
-                SwingUtilities.invokeLater(() -> searchAndUpdate());
-            }
-        }, DEBOUNCE_DELAY);
+        searchPipeline.submit(searchField.getText());
     }
 
     /**
-     * Performs a search based on user input and updates the table with results.
+     * Performs a search for the given query. Runs on a background thread.
+     * Goes through the search session, so typing further narrows the
+     * previous results and backspacing reuses them. If nothing matches,
+     * falls back to a typo-tolerant name search.
+     *
+     * @param query the text typed into the search field
+     * @return matching contacts, or all contacts for an empty query
      */
-    private void searchAndUpdate() {
-        String query = searchField.getText();
-        if (query.isEmpty()) {
-            refreshTable();
-        } else {
-            List<Contact> results = service.searchContacts(query);
-            updateTable(results);
-        }
+    private List<Contact> runSearch(String query) {
+        List<Contact> results = searchSession.search(query);
+        return results.isEmpty() ? service.searchFuzzy(query) : results;
     }
 
     /**
@@ -154,29 +157,29 @@ public class ContactGUI extends JFrame {
                 JOptionPane.showMessageDialog(this, "Contact added.");
                 refreshTable();
             } else {
-                JOptionPane.showMessageDialog(this, "Invalid phone or email.");
+                JOptionPane.showMessageDialog(this, "Invalid name, phone or email, or contact already exists.");
             }
         }
     }
 
     /**
-     * Refreshes the table with the full contact list from the service.
+     * Refreshes the table with the full contact list from the service,
+     * discarding any search still in progress.
      */
     private void refreshTable() {
+        searchPipeline.invalidate();
         updateTable(service.getContacts());
     }
 
     /**
-     * Updates the contact table with a given list of contacts.
-     * Sorts the list alphabetically before displaying.
+     * Updates the contact table with a given list of contacts,
+     * which the service already returns in alphabetical order.
+     * The table model reads rows from the list lazily, so only
+     * visible rows are touched.
      *
      * @param contacts list of contacts to show in the table
      */
     private void updateTable(List<Contact> contacts) {
-        tableModel.setRowCount(0);
-        contacts.sort((c1, c2) -> c1.getName().compareToIgnoreCase(c2.getName()));
-        for (Contact c : contacts) {
-            tableModel.addRow(new String[]{c.getName(), c.getPhone(), c.getEmail()});
-        }
+        tableModel.setContacts(contacts);
     }
 }
@@ -0,0 +1,70 @@
+package com.khan.fazal.intern.view;
+
+import com.khan.fazal.intern.model.Contact;
+
+import javax.swing.table.AbstractTableModel;
+import java.io.Serial;
+import java.util.List;
+
+/**
+ * Table model that reads rows straight from a list of contacts.
+ *
+ * Unlike a {@code DefaultTableModel}, nothing is copied into per-row
+ * vectors: the model only keeps a reference to the (already sorted) list
+ * handed out by the service, and the {@code JTable} asks for the cells of
+ * the rows it actually paints. Swapping in a new list fires one
+ * data-changed event regardless of its size.
+ */
+public class ContactTableModel extends AbstractTableModel {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {"Name", "Phone", "Email"};
+
+    private transient List<Contact> contacts = List.of();
+
+    /**
+     * Replaces the rows shown by the table. The list must not be modified
+     * afterwards; the service's snapshots and search results satisfy this.
+     *
+     * @param contacts the contacts to display, in display order
+     */
+    public void setContacts(List<Contact> contacts) {
+        this.contacts = contacts;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Returns the contact shown at the given row.
+     *
+     * @param row the row index
+     * @return the contact at that row
+     */
+    public Contact getContactAt(int row) {
+        return contacts.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return contacts.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Contact c = contacts.get(row);
+        return switch (column) {
+            case 0 -> c.getName();
+            case 1 -> c.getPhone();
+            default -> c.getEmail();
+        };
+    }
+}
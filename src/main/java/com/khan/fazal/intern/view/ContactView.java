@@ -2,23 +2,35 @@ package com.khan.fazal.intern.view;
 
 import com.khan.fazal.intern.model.Contact;
 import com.khan.fazal.intern.service.ContactService;
+import com.khan.fazal.intern.service.ImportResult;
 import com.khan.fazal.intern.utils.PrintDash;
 
-import java.util.ArrayList;
-import java.util.Comparator;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Scanner;
+import java.util.function.Function;
 
 /**
  * Console-based view for the Contact Book application.
  * Provides a simple menu-driven interface for managing contacts.
  */
 public class ContactView {
+    private static final int PAGE_SIZE = 50;
+    private static final String[] HEADER = {"Name", "Phone", "Email"};
+    private static final List<Function<Contact, String>> COLUMNS =
+            List.of(Contact::getName, Contact::getPhone, Contact::getEmail);
+
     private final ContactService service = new ContactService();
     private final Scanner scanner = new Scanner(System.in);
 
     /**
-     * Displays the main menu and handles user input in a loop.
+     * Displays the main menu and handles user input in a loop, closing
+     * the contact book on exit.
      */
     public void displayMenu() {
         while (true) {
@@ -27,7 +39,9 @@ public class ContactView {
             System.out.println("2. Add Contact");
             System.out.println("3. Delete Contact");
             System.out.println("4. Search Contact");
-            System.out.println("5. Exit");
+            System.out.println("5. Import Contacts");
+            System.out.println("6. Export Contacts");
+            System.out.println("7. Exit");
             System.out.print("Choose an option: ");
 
             String choice = scanner.nextLine();
@@ -36,8 +50,11 @@ public class ContactView {
                 case "2" -> addContact();
                 case "3" -> deleteContact();
                 case "4" -> searchContact();
-                case "5" -> {
+                case "5" -> importContacts();
+                case "6" -> exportContacts();
+                case "7" -> {
                     System.out.println("Exiting...");
+                    service.close();
                     return;
                 }
                 default -> System.out.println("Invalid option. Try again.");
@@ -47,7 +64,8 @@ public class ContactView {
 
     /**
      * Searches contacts by name prefix and displays matching results.
-     * Results are sorted alphabetically and shown in tabular format.
+     * Results arrive sorted alphabetically and are shown in tabular format.
+     * If nothing matches, names close to the prefix are offered instead.
      */
     private void searchContact() {
         System.out.print("Enter name prefix to search: ");
@@ -55,23 +73,22 @@ public class ContactView {
         List<Contact> results = service.searchContacts(prefix);
 
         if (results.isEmpty()) {
-            System.out.println("No contacts found for prefix: " + prefix);
-        } else {
-            results.sort(Comparator.comparing(Contact::getName, String.CASE_INSENSITIVE_ORDER));
-            List<String[]> rows = new ArrayList<>();
-            rows.add(new String[]{"Name", "Phone", "Email"});
-
-            for (Contact c : results) {
-                rows.add(new String[]{c.getName(), c.getPhone(), c.getEmail()});
+            results = service.searchFuzzy(prefix);
+            if (results.isEmpty()) {
+                System.out.println("No contacts found for prefix: " + prefix);
+            } else {
+                System.out.println("No exact matches for " + prefix + ", closest names:");
+                printContacts(results);
             }
-
-            PrintDash.printTable(rows);
+        } else {
+            printContacts(results);
         }
     }
 
     /**
-     * Retrieves and displays all saved contacts in alphabetical order.
-     * Uses the PrintDash utility to display a formatted table.
+     * Retrieves and displays all saved contacts, which the service keeps
+     * in alphabetical order.
+     * Uses the PrintDash utility to display a formatted table, one page at a time.
      */
     private void displayContacts() {
         List<Contact> contacts = service.getContacts();
@@ -79,22 +96,39 @@ public class ContactView {
             System.out.println("No contacts found.");
             return;
         }
+        printContacts(contacts);
+    }
 
-        contacts.sort(Comparator.comparing(Contact::getName, String.CASE_INSENSITIVE_ORDER));
-
-        List<String[]> rows = new ArrayList<>();
-        rows.add(new String[]{"Name", "Phone", "Email"});
-
-        for (Contact c : contacts) {
-            rows.add(new String[]{c.getName(), c.getPhone(), c.getEmail()});
+    /**
+     * Prints contacts as a table in pages of {@value #PAGE_SIZE} rows,
+     * asking before each further page. Column widths are measured once
+     * over all contacts so every page lines up.
+     *
+     * @param contacts the contacts to print
+     */
+    private void printContacts(List<Contact> contacts) {
+        int[] widths = PrintDash.measure(HEADER, contacts, COLUMNS);
+        Writer out = PrintDash.stdout();
+        try {
+            for (int from = 0; from < contacts.size(); from += PAGE_SIZE) {
+                int to = Math.min(from + PAGE_SIZE, contacts.size());
+                PrintDash.printTable(HEADER, contacts.subList(from, to).iterator(), COLUMNS, widths, out);
+                if (to < contacts.size()) {
+                    out.write("Showing " + (from + 1) + "-" + to + " of " + contacts.size()
+                            + ". Press Enter for more, or q to stop: ");
+                    out.flush();
+                    if (scanner.nextLine().trim().equalsIgnoreCase("q")) break;
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("Could not print contacts.");
         }
-
-        PrintDash.printTable(rows);
     }
 
     /**
      * Prompts the user for new contact details and attempts to add the contact.
-     * Validates phone and email before adding.
+     * Validates name, phone and email and rejects duplicates before adding.
      */
     private void addContact() {
         System.out.print("Enter name: ");
@@ -107,7 +141,7 @@ public class ContactView {
         if (service.addContact(name, phone, email)) {
             System.out.println("Contact added.");
         } else {
-            System.out.println("Invalid phone or email.");
+            System.out.println("Invalid name, phone or email, or contact already exists.");
         }
     }
 
@@ -117,7 +151,44 @@ public class ContactView {
     private void deleteContact() {
         System.out.print("Enter name to delete: ");
         String name = scanner.nextLine();
-        service.deleteContact(name);
-        System.out.println("Contact deleted if existed.");
+        if (service.deleteContact(name)) {
+            System.out.println("Contact deleted.");
+        } else {
+            System.out.println("No contact found with that name.");
+        }
+    }
+
+    /**
+     * Prompts for a CSV file and imports its contacts in bulk,
+     * listing any rejected rows.
+     */
+    private void importContacts() {
+        System.out.print("Enter CSV file to import: ");
+        String path = scanner.nextLine().trim();
+
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(path))) {
+            ImportResult result = service.importContacts(in);
+            System.out.println("Imported " + result.getImported() + " contacts.");
+            for (ImportResult.Reject reject : result.getRejects()) {
+                System.out.println("  line " + reject.lineNumber() + ": " + reject.reason() + " (" + reject.line() + ")");
+            }
+        } catch (IOException e) {
+            System.out.println("Could not read " + path + ".");
+        }
+    }
+
+    /**
+     * Prompts for a target file and exports all contacts to it as CSV.
+     */
+    private void exportContacts() {
+        System.out.print("Enter CSV file to export to: ");
+        String path = scanner.nextLine().trim();
+
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(path))) {
+            int count = service.exportContacts(out);
+            System.out.println("Exported " + count + " contacts.");
+        } catch (IOException e) {
+            System.out.println("Could not write " + path + ".");
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,112 @@
+package com.khan.fazal.intern.view;
+
+import com.khan.fazal.intern.model.Contact;
+
+import javax.swing.SwingUtilities;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs type-ahead searches off the Swing event dispatch thread.
+ *
+ * Each query is debounced on a single scheduler thread, then executed on
+ * a virtual thread. A newer query cancels the pending and in-flight ones,
+ * and every query carries a generation number, so results of a superseded
+ * search are dropped instead of overwriting newer ones. Only the final
+ * result swap runs on the EDT.
+ *
+ * The debounce delay adapts to how long searches take: about twice a
+ * moving average of recent search times, clamped between
+ * {@value #MIN_DELAY_MS} and {@value #MAX_DELAY_MS} ms, so fast books feel
+ * instant while slow ones are not searched on every keystroke.
+ */
+public class SearchPipeline {
+    private static final long MIN_DELAY_MS = 25;
+    private static final long MAX_DELAY_MS = 250;
+
+    private final Function<String, List<Contact>> search;
+    private final Consumer<List<Contact>> onResult;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "search-debounce");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+
+    private volatile long generation;
+    private volatile double averageSearchMs;
+    private Future<?> pending;
+    private Future<?> inFlight;
+
+    /**
+     * Creates a pipeline.
+     *
+     * @param search   runs a query and returns its results; called off the EDT
+     * @param onResult receives the results of the latest query on the EDT
+     */
+    public SearchPipeline(Function<String, List<Contact>> search, Consumer<List<Contact>> onResult) {
+        this.search = search;
+        this.onResult = onResult;
+    }
+
+    /**
+     * Schedules a search for the query, superseding any earlier one.
+     *
+     * @param query the text to search for
+     */
+    public synchronized void submit(String query) {
+        long gen = ++generation;
+        cancel();
+        long delay = Math.clamp(Math.round(averageSearchMs * 2), MIN_DELAY_MS, MAX_DELAY_MS);
+        pending = scheduler.schedule(() -> start(gen, query), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drops any pending or running search, e.g. because the table is about
+     * to be refreshed directly.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        cancel();
+    }
+
+    /**
+     * Stops the scheduler and worker threads.
+     */
+    public synchronized void shutdown() {
+        invalidate();
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Launches the search on a virtual thread if it is still the latest.
+     */
+    private synchronized void start(long gen, String query) {
+        if (gen != generation) return;
+        inFlight = workers.submit(() -> run(gen, query));
+    }
+
+    /**
+     * Runs the search and hands its results to the EDT if no newer query
+     * has arrived in the meantime.
+     */
+    private void run(long gen, String query) {
+        long started = System.nanoTime();
+        List<Contact> results = search.apply(query);
+        double tookMs = (System.nanoTime() - started) / 1e6;
+        averageSearchMs = averageSearchMs * 0.7 + tookMs * 0.3;
+
+        if (gen != generation || Thread.currentThread().isInterrupted()) return;
+        SwingUtilities.invokeLater(() -> {
+            if (gen == generation) onResult.accept(results);
+        });
+    }
+
+    private void cancel() {
+        if (pending != null) pending.cancel(false);
+        if (inFlight != null) inFlight.cancel(true);
+    }
+}